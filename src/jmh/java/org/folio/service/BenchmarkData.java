@@ -0,0 +1,218 @@
+package org.folio.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import org.folio.model.UserImportData;
+import org.folio.model.UserSystemData;
+import org.folio.rest.jaxrs.model.Address;
+import org.folio.rest.jaxrs.model.CustomField;
+import org.folio.rest.jaxrs.model.CustomFields;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.Personal;
+import org.folio.rest.jaxrs.model.SelectField;
+import org.folio.rest.jaxrs.model.SelectFieldOption;
+import org.folio.rest.jaxrs.model.SelectFieldOptions;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+/**
+ * Generates the reference data of a tenant and users referencing it like a real import: every
+ * user has 5 addresses, 2 departments and 10 custom fields, a third of them multi-select.
+ */
+final class BenchmarkData {
+
+  static final String SOURCE_TYPE = "bench";
+
+  private static final List<String> ADDRESS_TYPES = List.of("Home", "Work", "Campus", "Billing", "Shipping");
+  private static final int PATRON_GROUPS = 10;
+  private static final int DEPARTMENTS = 20;
+  private static final int CUSTOM_FIELDS = 10;
+  private static final int OPTIONS = 20;
+  private static final int MULTI_SELECT_VALUES = 3;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * @return the import data with the system data all generated users can be mapped with
+   */
+  static UserImportData createImportData() {
+    Map<String, String> patronGroups = new HashMap<>();
+    for (int i = 0; i < PATRON_GROUPS; i++) {
+      patronGroups.put(getPatronGroup(i), UUID.randomUUID().toString());
+    }
+    Map<String, String> addressTypes = new HashMap<>();
+    ADDRESS_TYPES.forEach(addressType -> addressTypes.put(addressType, UUID.randomUUID().toString()));
+
+    Set<Department> departments = new HashSet<>();
+    for (int i = 0; i < DEPARTMENTS; i++) {
+      departments.add(new Department()
+          .withId(UUID.randomUUID().toString())
+          .withName(getDepartment(i))
+          .withCode("D" + i));
+    }
+    Set<CustomField> customFields = new HashSet<>();
+    for (int i = 0; i < CUSTOM_FIELDS; i++) {
+      customFields.add(createCustomField(i));
+    }
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+        .withUsers(new ArrayList<>())
+        .withTotalRecords(0)
+        .withSourceType(SOURCE_TYPE);
+    return new UserImportData(collection).withSystemData(UserSystemData.builder()
+        .patronGroups(patronGroups)
+        .addressTypes(addressTypes)
+        .servicePoints(new HashMap<>())
+        .departments(departments)
+        .customFields(customFields)
+        .build());
+  }
+
+  static List<User> generateUsers(int count) {
+    List<User> users = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      users.add(generateUser(i));
+    }
+    return users;
+  }
+
+  /**
+   * A user as sent to the import, the patron group, address types, departments and
+   * select options are referenced by name.
+   */
+  static User generateUser(int i) {
+    List<Address> addresses = new ArrayList<>();
+    for (int j = 0; j < ADDRESS_TYPES.size(); j++) {
+      addresses.add(new Address()
+          .withAddressTypeId(ADDRESS_TYPES.get(j))
+          .withAddressLine1(i + " Main Street")
+          .withAddressLine2("Apartment " + j)
+          .withCity("Springfield")
+          .withRegion("Region " + j)
+          .withPostalCode(String.format("%05d", i % 100000))
+          .withCountryId("US")
+          .withPrimaryAddress(j == 0));
+    }
+    Set<String> departments = new LinkedHashSet<>();
+    departments.add(getDepartment(i % DEPARTMENTS));
+    departments.add(getDepartment((i + 1) % DEPARTMENTS));
+
+    CustomFields customFields = new CustomFields();
+    for (int j = 0; j < CUSTOM_FIELDS; j++) {
+      customFields.setAdditionalProperty(getRefId(j), getCustomFieldValue(i, j));
+    }
+
+    String username = "user_" + i;
+    return new User()
+        .withUsername(username)
+        .withExternalSystemId("ext-" + i)
+        .withBarcode(String.valueOf(1000000 + i))
+        .withActive(true)
+        .withPatronGroup(getPatronGroup(i % PATRON_GROUPS))
+        .withDepartments(departments)
+        .withCustomFields(customFields)
+        .withPersonal(new Personal()
+            .withFirstName("First" + i)
+            .withLastName("Last" + i)
+            .withEmail(username + "@example.org")
+            .withPhone("+1 555 " + i)
+            .withPreferredContactTypeId("email")
+            .withAddresses(addresses));
+  }
+
+  /**
+   * The users stored in mod-users for the generated users, with ids and a changed last name.
+   */
+  static List<User> generateExistingUsers(int count) {
+    List<User> users = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      User user = generateUser(i).withId(UUID.randomUUID().toString());
+      user.getPersonal().setLastName("Former" + i);
+      users.add(user);
+    }
+    return users;
+  }
+
+  /**
+   * A page of existing users parsed from a JSON response like the one of {@code GET /users}.
+   */
+  @SuppressWarnings("rawtypes")
+  static List<Map> createUserSearchPage(List<User> users) {
+    JsonArray array = new JsonArray();
+    users.forEach(user -> array.add(JsonObject.mapFrom(user)));
+    String body = new JsonObject().put("users", array).put("totalRecords", users.size()).encode();
+    return new JsonObject(body).getJsonArray("users").getList();
+  }
+
+  private static CustomField createCustomField(int i) {
+    CustomField customField = new CustomField()
+        .withId(UUID.randomUUID().toString())
+        .withName("Field " + i)
+        .withRefId(getRefId(i))
+        .withEntityType("user")
+        .withType(getType(i));
+    if (customField.getType() != CustomField.Type.TEXTBOX_SHORT) {
+      List<SelectFieldOption> options = new ArrayList<>();
+      for (int j = 0; j < OPTIONS; j++) {
+        options.add(new SelectFieldOption().withId("opt_" + j).withValue(getOption(j)));
+      }
+      customField.setSelectField(new SelectField()
+          .withMultiSelect(customField.getType() == CustomField.Type.MULTI_SELECT_DROPDOWN)
+          .withOptions(new SelectFieldOptions().withValues(options)));
+    }
+    return customField;
+  }
+
+  private static CustomField.Type getType(int i) {
+    switch (i % 3) {
+      case 0:
+        return CustomField.Type.MULTI_SELECT_DROPDOWN;
+      case 1:
+        return i % 2 == 0 ? CustomField.Type.RADIO_BUTTON : CustomField.Type.SINGLE_SELECT_DROPDOWN;
+      default:
+        return CustomField.Type.TEXTBOX_SHORT;
+    }
+  }
+
+  private static Object getCustomFieldValue(int user, int field) {
+    switch (getType(field)) {
+      case MULTI_SELECT_DROPDOWN:
+        List<String> values = new ArrayList<>();
+        for (int k = 0; k < MULTI_SELECT_VALUES; k++) {
+          values.add(getOption((user + k) % OPTIONS));
+        }
+        return values;
+      case TEXTBOX_SHORT:
+        return "Text " + user;
+      default:
+        return getOption(user % OPTIONS);
+    }
+  }
+
+  private static String getPatronGroup(int i) {
+    return "group" + i;
+  }
+
+  private static String getDepartment(int i) {
+    return "Department " + i;
+  }
+
+  private static String getRefId(int i) {
+    return "field_" + i;
+  }
+
+  private static String getOption(int i) {
+    return "Option " + i;
+  }
+}
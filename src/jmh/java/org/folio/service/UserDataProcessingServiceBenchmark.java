@@ -0,0 +1,130 @@
+package org.folio.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.folio.model.UserImportData;
+import org.folio.model.exception.UserMappingFailedException;
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * Throughput of mapping users in users per second. The mapping changes the users, so the
+ * benchmarks that map incoming users get a fresh batch for every invocation. Run with
+ * {@code -prof gc} for the allocation rate, see the README.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserDataProcessingServiceBenchmark {
+
+  static final int BATCH_SIZE = 100;
+
+  private final UserDataProcessingService service = new UserDataProcessingService();
+  private UserImportData importData;
+  private List<User> incomingUsers;
+  private List<User> existingUsers;
+  @SuppressWarnings("rawtypes")
+  private List<Map> userSearchPage;
+
+  @Setup
+  public void setUp() {
+    importData = BenchmarkData.createImportData();
+    incomingUsers = BenchmarkData.generateUsers(BATCH_SIZE);
+    existingUsers = BenchmarkData.generateExistingUsers(BATCH_SIZE);
+    userSearchPage = BenchmarkData.createUserSearchPage(existingUsers);
+  }
+
+  @State(Scope.Thread)
+  public static class IncomingUsers {
+
+    List<User> users;
+
+    @Setup(Level.Invocation)
+    public void generate() {
+      users = BenchmarkData.generateUsers(BATCH_SIZE);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class UsersWithDepartments {
+
+    List<User> users;
+
+    @Setup(Level.Invocation)
+    public void generate() {
+      users = BenchmarkData.generateUsers(BATCH_SIZE);
+      users.forEach(user -> user.withPersonal(null).withCustomFields(null));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class UsersWithCustomFields {
+
+    List<User> users;
+
+    @Setup(Level.Invocation)
+    public void generate() {
+      users = BenchmarkData.generateUsers(BATCH_SIZE);
+      users.forEach(user -> user.withPersonal(null).withDepartments(null));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void updateUserData(IncomingUsers incoming, Blackhole blackhole) {
+    for (User user : incoming.users) {
+      service.updateUserData(user, importData);
+      blackhole.consume(user);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void resolveDepartments(UsersWithDepartments incoming, Blackhole blackhole) {
+    for (User user : incoming.users) {
+      service.updateUserData(user, importData);
+      blackhole.consume(user);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void resolveCustomFields(UsersWithCustomFields incoming, Blackhole blackhole) {
+    for (User user : incoming.users) {
+      service.updateUserData(user, importData);
+      blackhole.consume(user);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void updateExistingUserWithIncomingFields(Blackhole blackhole) {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      blackhole.consume(service.updateExistingUserWithIncomingFields(incomingUsers.get(i), existingUsers.get(i)));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Map<String, User> extractExistingUsers() throws UserMappingFailedException {
+    return service.extractExistingUsers(userSearchPage);
+  }
+}
@@ -0,0 +1,81 @@
+package org.folio.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * The partitions of an import that were finished before, e.g. by an instance that was
+ * restarted. The users imported by them are skipped when the import is resumed and their
+ * outcome is added to the response.
+ */
+public class ImportCheckpoint {
+
+  private static final ImportCheckpoint DISABLED = new ImportCheckpoint(null, Collections.emptyList());
+
+  private final String importId;
+  private final Set<String> committedExternalSystemIds = new HashSet<>();
+  private int createdRecords;
+  private int updatedRecords;
+  private int unchangedRecords;
+
+  public ImportCheckpoint(String importId, List<PartitionCheckpoint> partitions) {
+    this.importId = importId;
+    for (PartitionCheckpoint partition : partitions) {
+      committedExternalSystemIds.addAll(partition.getExternalSystemIds());
+      createdRecords += partition.getCreatedRecords();
+      updatedRecords += partition.getUpdatedRecords();
+      unchangedRecords += partition.getUnchangedRecords();
+    }
+  }
+
+  /**
+   * @return the checkpoint of an import that is not checkpointed
+   */
+  public static ImportCheckpoint disabled() {
+    return DISABLED;
+  }
+
+  public boolean isEnabled() {
+    return importId != null;
+  }
+
+  public String getImportId() {
+    return importId;
+  }
+
+  public int getCommittedRecords() {
+    return committedExternalSystemIds.size();
+  }
+
+  /**
+   * @return the users that were not imported before
+   */
+  public List<User> withoutCommitted(List<User> users) {
+    if (committedExternalSystemIds.isEmpty()) {
+      return users;
+    }
+    return users.stream()
+        .filter(user -> !committedExternalSystemIds.contains(user.getExternalSystemId()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Add the users imported before to the response of the resumed import.
+   */
+  public ImportResponse addCommittedRecords(ImportResponse response) {
+    if (committedExternalSystemIds.isEmpty()) {
+      return response;
+    }
+    return response
+        .withTotalRecords(response.getTotalRecords() + createdRecords + updatedRecords + unchangedRecords)
+        .withCreatedRecords(response.getCreatedRecords() + createdRecords)
+        .withUpdatedRecords(response.getUpdatedRecords() + updatedRecords)
+        .withUnchangedRecords(response.getUnchangedRecords() + unchangedRecords);
+  }
+}
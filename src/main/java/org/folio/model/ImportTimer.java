@@ -0,0 +1,69 @@
+package org.folio.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+
+import org.folio.rest.jaxrs.model.ImportTimings;
+
+/**
+ * Sums up the time one import spends in each phase. Phases running for several partitions
+ * at the same time are summed up, so they can take longer than the import.
+ */
+public class ImportTimer {
+
+  public enum Phase {
+    REFERENCE_DATA_PREPARATION,
+    EXISTING_USER_LOOKUP,
+    USER_WRITES,
+    PERMISSION_CREATION,
+    PREFERENCE_PROCESSING,
+    DEACTIVATION
+  }
+
+  private final Map<Phase, AtomicLong> nanos = new EnumMap<>(Phase.class);
+
+  public ImportTimer() {
+    for (Phase phase : Phase.values()) {
+      nanos.put(phase, new AtomicLong());
+    }
+  }
+
+  /**
+   * Add the time since {@code startNanos}, a value of {@link System#nanoTime()}, to the phase.
+   */
+  public void record(Phase phase, long startNanos) {
+    add(phase, System.nanoTime() - startNanos);
+  }
+
+  public void add(Phase phase, long elapsedNanos) {
+    nanos.get(phase).addAndGet(elapsedNanos);
+  }
+
+  /**
+   * Run an asynchronous step of the phase and add its time when it completes.
+   */
+  public <T> Future<T> time(Phase phase, Supplier<Future<T>> step) {
+    long start = System.nanoTime();
+    return step.get().onComplete(ar -> record(phase, start));
+  }
+
+  public ImportTimings toImportTimings(int httpCalls) {
+    return new ImportTimings()
+        .withReferenceDataPreparation(getMillis(Phase.REFERENCE_DATA_PREPARATION))
+        .withExistingUserLookup(getMillis(Phase.EXISTING_USER_LOOKUP))
+        .withUserWrites(getMillis(Phase.USER_WRITES))
+        .withPermissionCreation(getMillis(Phase.PERMISSION_CREATION))
+        .withPreferenceProcessing(getMillis(Phase.PREFERENCE_PROCESSING))
+        .withDeactivation(getMillis(Phase.DEACTIVATION))
+        .withHttpCalls(httpCalls);
+  }
+
+  private int getMillis(Phase phase) {
+    return (int) TimeUnit.NANOSECONDS.toMillis(nanos.get(phase).get());
+  }
+}
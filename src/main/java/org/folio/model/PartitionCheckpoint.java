@@ -0,0 +1,22 @@
+package org.folio.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * The outcome of one partition of an import, stored when the partition is finished. The
+ * externalSystemIds are those of the users that were created, updated or left unchanged.
+ * The createdDate in milliseconds lets checkpoints that are too old be ignored.
+ */
+@Data
+public class PartitionCheckpoint {
+
+  private String id;
+  private String importId;
+  private List<String> externalSystemIds;
+  private int createdRecords;
+  private int updatedRecords;
+  private int unchangedRecords;
+  private long createdDate;
+}
@@ -0,0 +1,40 @@
+package org.folio.model;
+
+import java.util.Map;
+
+import lombok.Data;
+
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+
+/**
+ * A part of an import waiting in the partition queue until a module instance claims it.
+ * The users are removed when the partition is done, only the response is kept. The Okapi
+ * headers are stored without the token.
+ */
+@Data
+public class QueuedPartition {
+
+  public enum State {
+    QUEUED, CLAIMED, DONE
+  }
+
+  private String id;
+  private String importId;
+  private int sequence;
+  private long queuedAt;
+  private State state;
+  private String owner;
+  private long leaseExpires;
+  private int attempts;
+  private Map<String, String> okapiHeaders;
+  private UserdataimportCollection users;
+  private ImportResponse response;
+
+  /**
+   * @return whether the partition was claimed too often by instances that did not finish it
+   */
+  public boolean isAbandoned(long now, int maxAttempts) {
+    return state == State.CLAIMED && leaseExpires < now && attempts >= maxAttempts;
+  }
+}
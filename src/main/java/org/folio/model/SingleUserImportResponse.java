@@ -19,6 +19,10 @@ public class SingleUserImportResponse {
     return new SingleUserImportResponse().withExternalSystemId(externalSystemId).withStatus(UserRecordImportStatus.UPDATED);
   }
 
+  public static SingleUserImportResponse unchanged(String externalSystemId) {
+    return new SingleUserImportResponse().withExternalSystemId(externalSystemId).withStatus(UserRecordImportStatus.UNCHANGED);
+  }
+
   public static SingleUserImportResponse failed(String externalSystemId, String username, int errorCode, String errorMessage) {
     return new SingleUserImportResponse()
       .withExternalSystemId(externalSystemId)
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 import lombok.Getter;
 
@@ -24,15 +25,25 @@ public class UserImportData {
   private final boolean deactivateMissingUsers;
   private final boolean updateOnlyPresentFields;
   private final String sourceType;
+  private final Integer partitionSize;
+  private final Boolean adaptivePartitionSize;
+  private final boolean refreshReferenceData;
+  private final ImportTimer timer;
 
   private UserSystemData systemData;
+  private ImportCheckpoint checkpoint = ImportCheckpoint.disabled();
+  private IntConsumer partitionListener = processedRecords -> { };
 
   public UserImportData(UserdataimportCollection userdataCollection) {
     this.users = userdataCollection.getUsers();
     this.deactivateMissingUsers = Boolean.TRUE.equals(userdataCollection.getDeactivateMissingUsers());
     this.updateOnlyPresentFields = Boolean.TRUE.equals(userdataCollection.getUpdateOnlyPresentFields());
     this.sourceType = userdataCollection.getSourceType();
-    this.requestPreferences = fetchRequestPreferences(userdataCollection);
+    this.partitionSize = userdataCollection.getPartitionSize();
+    this.adaptivePartitionSize = userdataCollection.getAdaptivePartitionSize();
+    this.refreshReferenceData = Boolean.TRUE.equals(userdataCollection.getRefreshReferenceData());
+    this.timer = new ImportTimer();
+    this.requestPreferences = fetchRequestPreferences(userdataCollection.getUsers());
 
     if (userdataCollection.getIncluded() == null) {
       this.departments = Collections.emptySet();
@@ -43,9 +54,33 @@ public class UserImportData {
     }
   }
 
-  private Map<String, RequestPreference> fetchRequestPreferences(UserdataimportCollection userdataCollection) {
+  private UserImportData(UserImportData importData, List<User> users) {
+    this.users = users;
+    this.deactivateMissingUsers = importData.deactivateMissingUsers;
+    this.updateOnlyPresentFields = importData.updateOnlyPresentFields;
+    this.sourceType = importData.sourceType;
+    this.partitionSize = importData.partitionSize;
+    this.adaptivePartitionSize = importData.adaptivePartitionSize;
+    this.refreshReferenceData = importData.refreshReferenceData;
+    this.timer = importData.timer;
+    this.requestPreferences = fetchRequestPreferences(users);
+    this.departments = importData.departments;
+    this.customFields = importData.customFields;
+    this.systemData = importData.systemData;
+    this.checkpoint = importData.checkpoint;
+    this.partitionListener = importData.partitionListener;
+  }
+
+  /**
+   * Create the import data of a part of the users with the same options and system data.
+   */
+  public UserImportData forUsers(List<User> users) {
+    return new UserImportData(this, users);
+  }
+
+  private Map<String, RequestPreference> fetchRequestPreferences(List<User> users) {
     final Map<String, RequestPreference> requestPreferenceMap = new HashMap<>();
-    for (User user : userdataCollection.getUsers()) {
+    for (User user : users) {
       requestPreferenceMap.put(user.getUsername(), user.getRequestPreference());
       user.setRequestPreference(null);
     }
@@ -56,4 +91,21 @@ public class UserImportData {
     this.systemData = systemData;
     return this;
   }
+
+  public UserImportData withCheckpoint(ImportCheckpoint checkpoint) {
+    this.checkpoint = checkpoint;
+    return this;
+  }
+
+  /**
+   * Register a listener that is told the number of users of each processed partition.
+   */
+  public UserImportData withPartitionListener(IntConsumer partitionListener) {
+    this.partitionListener = partitionListener;
+    return this;
+  }
+
+  public void partitionProcessed(int processedRecords) {
+    partitionListener.accept(processedRecords);
+  }
 }
@@ -0,0 +1,142 @@
+package org.folio.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.ws.rs.core.Response;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.RoutingContext;
+import lombok.Getter;
+import lombok.Setter;
+
+import org.folio.rest.jaxrs.model.FailedUser;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.util.PartitionScheduler;
+
+/**
+ * State of one NDJSON import while its body is streamed in. Only the current line, the
+ * partitions waiting for a free slot and the counters are kept, not the whole file.
+ */
+@Getter
+@Setter
+public class UserImportStream {
+
+  private static final byte NEW_LINE = '\n';
+
+  private final String streamId;
+  private final RoutingContext routingContext;
+  private final Map<String, String> okapiHeaders;
+  private final int maxLineLength;
+  private final int maxQueuedPartitions;
+
+  private Buffer remainder = Buffer.buffer();
+  private boolean headerRead;
+  private UserImportData importData;
+  private int partitionSize;
+  private PartitionScheduler<List<User>, ImportResponse> scheduler;
+  private List<User> currentPartition = new ArrayList<>();
+  private final List<List<User>> waitingPartitions = new ArrayList<>();
+  private int pendingPartitions;
+  private boolean paused;
+  private String error;
+  private String badRequest;
+  private Handler<AsyncResult<Response>> completionHandler;
+
+  private int totalRecords;
+  private int createdRecords;
+  private int updatedRecords;
+  private int unchangedRecords;
+  private int failedRecords;
+  private final List<FailedUser> failedUsers = new ArrayList<>();
+
+  public UserImportStream(String streamId, RoutingContext routingContext, Map<String, String> okapiHeaders,
+      int maxLineLength, int maxQueuedPartitions) {
+
+    this.streamId = streamId;
+    this.routingContext = routingContext;
+    this.okapiHeaders = okapiHeaders;
+    this.maxLineLength = maxLineLength;
+    this.maxQueuedPartitions = maxQueuedPartitions;
+  }
+
+  /**
+   * Split a chunk of the body into lines. A line that is not complete yet is kept
+   * until the next chunk arrives.
+   *
+   * @throws IllegalStateException if a line is longer than the maximum line length
+   */
+  public void append(Buffer chunk, Consumer<String> lineHandler) {
+    Buffer buffer = remainder.length() == 0 ? chunk : remainder.appendBuffer(chunk);
+    int start = 0;
+    for (int i = 0; i < buffer.length(); i++) {
+      if (buffer.getByte(i) == NEW_LINE) {
+        handleLine(buffer, start, i, lineHandler);
+        start = i + 1;
+      }
+    }
+    if (buffer.length() - start > maxLineLength) {
+      throw new IllegalStateException("Line exceeds the maximum length of " + maxLineLength + " bytes");
+    }
+    remainder = buffer.getBuffer(start, buffer.length());
+  }
+
+  /**
+   * Handle the last line of the body if it is not terminated by a new line.
+   */
+  public void end(Consumer<String> lineHandler) {
+    handleLine(remainder, 0, remainder.length(), lineHandler);
+    remainder = Buffer.buffer();
+  }
+
+  public boolean isFailed() {
+    return error != null || badRequest != null;
+  }
+
+  /**
+   * @return true when the whole body has been read and all partitions have been processed
+   */
+  public boolean isComplete() {
+    boolean prepared = !headerRead || scheduler != null || isFailed();
+    return completionHandler != null && prepared && pendingPartitions == 0 && waitingPartitions.isEmpty();
+  }
+
+  public void addResponse(ImportResponse response) {
+    totalRecords += response.getTotalRecords();
+    createdRecords += response.getCreatedRecords();
+    updatedRecords += response.getUpdatedRecords();
+    unchangedRecords += response.getUnchangedRecords();
+    failedRecords += response.getFailedRecords();
+    failedUsers.addAll(response.getFailedUsers());
+  }
+
+  public void addFailedUser(FailedUser failedUser) {
+    totalRecords++;
+    failedRecords++;
+    failedUsers.add(failedUser);
+  }
+
+  public ImportResponse toImportResponse() {
+    return new ImportResponse()
+        .withTotalRecords(totalRecords)
+        .withCreatedRecords(createdRecords)
+        .withUpdatedRecords(updatedRecords)
+        .withUnchangedRecords(unchangedRecords)
+        .withFailedRecords(failedRecords)
+        .withFailedUsers(failedUsers)
+        .withError(error);
+  }
+
+  private void handleLine(Buffer buffer, int start, int end, Consumer<String> lineHandler) {
+    String line = buffer.getString(start, end, StandardCharsets.UTF_8.name()).trim();
+    if (!line.isEmpty()) {
+      lineHandler.accept(line);
+    }
+  }
+}
@@ -1,5 +1,5 @@
 package org.folio.model;
 
 public enum UserRecordImportStatus {
-  CREATED, UPDATED, FAILED
+  CREATED, UPDATED, UNCHANGED, FAILED
 }
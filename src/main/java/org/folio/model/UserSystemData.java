@@ -1,21 +1,92 @@
 package org.folio.model;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
+import io.vertx.core.Future;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.Setter;
 
 import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.SelectFieldOption;
 
 @Getter
-@Builder
 public class UserSystemData {
 
-  private final Map<String, String> patronGroups;
-  private final Map<String, String> addressTypes;
-  private final Map<String, String> servicePoints;
+  @Setter
+  private Map<String, String> patronGroups;
+  @Setter
+  private Map<String, String> addressTypes;
+  @Setter
+  private Map<String, String> servicePoints;
   private final Set<Department> departments;
   private final Set<CustomField> customFields;
+
+  @Getter(AccessLevel.NONE)
+  private final Map<String, Department> departmentsByName = new HashMap<>();
+  @Getter(AccessLevel.NONE)
+  private final Map<String, CustomField> customFieldsByRefId = new HashMap<>();
+  @Getter(AccessLevel.NONE)
+  private final Map<String, Map<String, String>> optionIdsByRefId = new HashMap<>();
+  @Getter(AccessLevel.NONE)
+  private final Map<String, Future<Void>> reloads = new HashMap<>();
+
+  /**
+   * The lookups of departments, custom fields and their options by name are indexed once
+   * here instead of being scanned for every user.
+   */
+  @Builder
+  private UserSystemData(Map<String, String> patronGroups, Map<String, String> addressTypes,
+      Map<String, String> servicePoints, Set<Department> departments, Set<CustomField> customFields) {
+
+    this.patronGroups = patronGroups;
+    this.addressTypes = addressTypes;
+    this.servicePoints = servicePoints;
+    this.departments = departments == null ? Collections.emptySet() : departments;
+    this.customFields = customFields == null ? Collections.emptySet() : customFields;
+
+    this.departments.forEach(department -> departmentsByName.putIfAbsent(department.getName(), department));
+    this.customFields.forEach(this::indexCustomField);
+  }
+
+  public Optional<Department> findDepartmentByName(String name) {
+    return Optional.ofNullable(departmentsByName.get(name));
+  }
+
+  public Optional<CustomField> findCustomFieldByRefId(String refId) {
+    return Optional.ofNullable(customFieldsByRefId.get(refId));
+  }
+
+  /**
+   * @return the id of the option with the given value of a selectable custom field
+   */
+  public Optional<String> findOptionId(String refId, Object value) {
+    return Optional.ofNullable(optionIdsByRefId.getOrDefault(refId, Collections.emptyMap()).get(value));
+  }
+
+  /**
+   * Reload a part of the system data at most once per import. Partitions asking for
+   * the same reload wait for the one already running.
+   */
+  public Future<Void> reloadOnce(String name, Supplier<Future<Void>> reload) {
+    return reloads.computeIfAbsent(name, key -> reload.get());
+  }
+
+  private void indexCustomField(CustomField customField) {
+    customFieldsByRefId.putIfAbsent(customField.getRefId(), customField);
+    if (customField.getSelectField() == null || customField.getSelectField().getOptions() == null) {
+      return;
+    }
+    Map<String, String> optionIds = optionIdsByRefId.computeIfAbsent(customField.getRefId(), key -> new HashMap<>());
+    for (SelectFieldOption option : customField.getSelectField().getOptions().getValues()) {
+      optionIds.putIfAbsent(option.getValue(), option.getId());
+    }
+  }
 }
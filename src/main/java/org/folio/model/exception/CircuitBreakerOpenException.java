@@ -0,0 +1,14 @@
+package org.folio.model.exception;
+
+/**
+ * A request was not sent because the circuit breaker of its endpoint is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  public CircuitBreakerOpenException(String endpoint) {
+    super("Circuit breaker for " + endpoint + " is open, the module is not available");
+  }
+
+}
@@ -0,0 +1,21 @@
+package org.folio.model.exception;
+
+/**
+ * A request to another module was answered with an unexpected status.
+ */
+public class HttpStatusException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int statusCode;
+
+  public HttpStatusException(int statusCode, String message) {
+    super(message);
+    this.statusCode = statusCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+}
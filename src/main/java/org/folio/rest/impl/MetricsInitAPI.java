@@ -0,0 +1,53 @@
+package org.folio.rest.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.rest.resource.interfaces.InitAPI;
+import org.folio.util.ConfigUtil;
+import org.folio.util.ImportMetrics;
+
+/**
+ * Serves the {@link ImportMetrics} for Prometheus at {@code /metrics} on the port of the
+ * {@code metrics.port} setting. A separate port is used because the module endpoints need
+ * a tenant and the metrics of all tenants must not be visible to one of them.
+ */
+public class MetricsInitAPI implements InitAPI {
+
+  private static final Logger LOGGER = LogManager.getLogger(MetricsInitAPI.class);
+  private static final String METRICS_PORT_SETTING = "metrics.port";
+  private static final int DEFAULT_METRICS_PORT = 0;
+  private static final String METRICS_PATH = "/metrics";
+
+  @Override
+  public void init(Vertx vertx, Context context, Handler<AsyncResult<Boolean>> resultHandler) {
+    int port = ConfigUtil.getInt(METRICS_PORT_SETTING, DEFAULT_METRICS_PORT);
+    if (port <= 0) {
+      resultHandler.handle(Future.succeededFuture(true));
+      return;
+    }
+    vertx.createHttpServer()
+        .requestHandler(MetricsInitAPI::handle)
+        .listen(port)
+        .onSuccess(server -> LOGGER.info("Serving metrics on port {}", server.actualPort()))
+        .onFailure(e -> LOGGER.error("Failed to serve metrics on port {}", port, e))
+        .<Boolean>map(server -> true)
+        .onComplete(resultHandler);
+  }
+
+  private static void handle(HttpServerRequest request) {
+    if (!METRICS_PATH.equals(request.path())) {
+      request.response().setStatusCode(404).end();
+      return;
+    }
+    request.response()
+        .putHeader("Content-Type", "text/plain; version=0.0.4; charset=utf-8")
+        .end(ImportMetrics.scrape());
+  }
+}
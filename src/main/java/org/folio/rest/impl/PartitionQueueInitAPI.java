@@ -0,0 +1,119 @@
+package org.folio.rest.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.QueuedPartition;
+import org.folio.rest.resource.interfaces.InitAPI;
+import org.folio.service.PartitionQueueService;
+import org.folio.util.ConfigUtil;
+
+/**
+ * Imports the partitions queued by any module instance when {@code queue.enabled} is set.
+ * The queues of all tenants are polled every {@code queue.poll-interval-ms}, at most
+ * {@code queue.worker-concurrency} partitions are imported by this instance at the same time.
+ * The expired partitions of all tenants are purged every few minutes.
+ */
+public class PartitionQueueInitAPI implements InitAPI {
+
+  private static final Logger LOGGER = LogManager.getLogger(PartitionQueueInitAPI.class);
+  private static final String WORKER_CONCURRENCY_SETTING = "queue.worker-concurrency";
+  private static final int DEFAULT_WORKER_CONCURRENCY = 2;
+  private static final long PURGE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+
+  private final PartitionQueueService queueService = new PartitionQueueService();
+  private Vertx vertx;
+  private int concurrency;
+  private int inFlight;
+  private boolean polling;
+
+  @Override
+  public void init(Vertx vertx, Context context, Handler<AsyncResult<Boolean>> resultHandler) {
+    if (PartitionQueueService.isEnabled()) {
+      this.vertx = vertx;
+      this.concurrency = ConfigUtil.getInt(WORKER_CONCURRENCY_SETTING, DEFAULT_WORKER_CONCURRENCY);
+      context.runOnContext(v -> {
+        vertx.setPeriodic(PartitionQueueService.getPollInterval(), id -> poll());
+        vertx.setPeriodic(PURGE_INTERVAL_MS, id -> purge());
+      });
+      LOGGER.info("Importing queued partitions, at most {} at the same time.", concurrency);
+    }
+    resultHandler.handle(Future.succeededFuture(true));
+  }
+
+  private void poll() {
+    if (polling || inFlight >= concurrency) {
+      return;
+    }
+    polling = true;
+    queueService.getTenants(vertx)
+        .compose(this::claimPartitions)
+        .onFailure(e -> LOGGER.warn("Failed to poll the partition queue: {}", e.getMessage()))
+        .onComplete(ar -> polling = false);
+  }
+
+  private void purge() {
+    queueService.getTenants(vertx)
+        .onSuccess(tenants -> tenants.forEach(tenantId -> queueService.purge(tenantId)
+            .onFailure(e -> LOGGER.warn("Failed to purge the partitions of tenant {}: {}", tenantId, e.getMessage()))))
+        .onFailure(e -> LOGGER.warn("Failed to purge the partition queue: {}", e.getMessage()));
+  }
+
+  private Future<Void> claimPartitions(List<String> tenants) {
+    Future<Void> future = Future.succeededFuture();
+    for (String tenantId : tenants) {
+      future = future.compose(v -> claimTenantPartitions(tenantId)
+          .recover(e -> {
+            LOGGER.warn("Failed to claim partitions of tenant {}: {}", tenantId, e.getMessage());
+            return Future.succeededFuture();
+          }));
+    }
+    return future;
+  }
+
+  /**
+   * Claim partitions of the tenant until there is none left or this instance is busy.
+   */
+  private Future<Void> claimTenantPartitions(String tenantId) {
+    if (inFlight >= concurrency) {
+      return Future.succeededFuture();
+    }
+    return queueService.claim(tenantId)
+        .compose(partition -> {
+          if (partition == null) {
+            return Future.succeededFuture();
+          }
+          inFlight++;
+          importPartition(tenantId, partition)
+              .onComplete(ar -> inFlight--);
+          return claimTenantPartitions(tenantId);
+        });
+  }
+
+  private Future<Void> importPartition(String tenantId, QueuedPartition partition) {
+    long renewal = vertx.setPeriodic(PartitionQueueService.getLeaseMillis() / 3,
+        id -> queueService.renewLease(tenantId, partition)
+            .onSuccess(renewed -> {
+              if (!renewed) {
+                LOGGER.warn("Lease of partition {} of import {} expired before it was renewed.",
+                    partition.getSequence(), partition.getImportId());
+              }
+            })
+            .onFailure(e -> LOGGER.warn("Failed to renew the lease of partition {} of import {}: {}",
+                partition.getSequence(), partition.getImportId(), e.getMessage())));
+    return queueService.getImportHeaders(tenantId, partition)
+        .compose(okapiHeaders -> new UserImportAPI().importQueuedPartition(partition.getUsers(), okapiHeaders))
+        .compose(response -> queueService.complete(tenantId, partition, response))
+        .onFailure(e -> LOGGER.warn("Failed to complete partition {} of import {}: {}",
+            partition.getSequence(), partition.getImportId(), e.getMessage()))
+        .onComplete(ar -> vertx.cancelTimer(renewal));
+  }
+}
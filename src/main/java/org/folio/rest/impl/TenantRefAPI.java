@@ -0,0 +1,44 @@
+package org.folio.rest.impl;
+
+import java.util.Map;
+
+import javax.ws.rs.core.Response;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.TenantAttributes;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.service.ImportCheckpointService;
+import org.folio.service.PartitionQueueService;
+
+/**
+ * Creates the tenant schema only if the tenant needs the module database, i.e. if
+ * {@code checkpoint.enabled} or {@code queue.enabled} is set when the module is enabled for
+ * the tenant. Otherwise the module is enabled without a database, as before the checkpoints
+ * and the partition queue were added.
+ */
+public class TenantRefAPI extends TenantAPI {
+
+  private static final Logger LOGGER = LogManager.getLogger(TenantRefAPI.class);
+
+  @Validate
+  @Override
+  public void postTenant(TenantAttributes tenantAttributes, Map<String, String> headers,
+      Handler<AsyncResult<Response>> handler, Context context) {
+
+    String tenantId = TenantTool.tenantId(headers);
+    if (!ImportCheckpointService.isEnabled(tenantId) && !PartitionQueueService.isEnabled()) {
+      LOGGER.info("Neither checkpoints nor the partition queue are enabled, tenant {} needs no database.",
+          tenantId);
+      handler.handle(Future.succeededFuture(PostTenantResponse.respond204()));
+      return;
+    }
+    super.postTenant(tenantAttributes, headers, handler, context);
+  }
+}
@@ -1,38 +1,56 @@
 package org.folio.rest.impl;
 
+import static org.folio.rest.impl.UserImportAPIConstants.DUPLICATE_EXTERNAL_SYSTEM_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.ERROR_MESSAGE;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_ADD_PERMISSIONS_FOR_USER_WITH_EXTERNAL_SYSTEM_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_IMPORT_USERS;
-import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USERS;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USER_SEARCH_RESPONSE;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USER_SEARCH_RESULT;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_UPDATE_USER_WITH_EXTERNAL_SYSTEM_ID;
+import static org.folio.rest.impl.UserImportAPIConstants.IDEMPOTENCY_KEY_REUSED;
+import static org.folio.rest.impl.UserImportAPIConstants.INVALID_STREAM_HEADER;
+import static org.folio.rest.impl.UserImportAPIConstants.INVALID_USER_RECORD;
+import static org.folio.rest.impl.UserImportAPIConstants.PARTITION_ABANDONED;
 import static org.folio.rest.impl.UserImportAPIConstants.PERMS_USERS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.STREAM_DEACTIVATION_NOT_SUPPORTED;
 import static org.folio.rest.impl.UserImportAPIConstants.USERS_ENDPOINT;
 import static org.folio.rest.impl.UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY;
 import static org.folio.rest.impl.UserImportAPIConstants.USER_DEACTIVATION_SKIPPED;
 import static org.folio.rest.impl.UserImportAPIConstants.USER_SCHEMA_MISMATCH;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -42,34 +60,80 @@ import io.vertx.ext.web.client.predicate.ResponsePredicate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import org.folio.model.ImportCheckpoint;
+import org.folio.model.ImportTimer;
+import org.folio.model.ImportTimer.Phase;
+import org.folio.model.QueuedPartition;
 import org.folio.model.SingleUserImportResponse;
 import org.folio.model.UserImportData;
+import org.folio.model.UserImportStream;
 import org.folio.model.UserRecordImportStatus;
 import org.folio.model.UserSystemData;
 import org.folio.model.exception.UserMappingFailedException;
 import org.folio.okapi.common.GenericCompositeFuture;
+import org.folio.rest.RestVerticle;
+import org.folio.rest.annotations.Stream;
 import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.Address;
 import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.Department;
 import org.folio.rest.jaxrs.model.FailedUser;
+import org.folio.rest.jaxrs.model.ImportJob;
+import org.folio.rest.jaxrs.model.ImportJobCollection;
 import org.folio.rest.jaxrs.model.ImportResponse;
 import org.folio.rest.jaxrs.model.RequestPreference;
 import org.folio.rest.jaxrs.model.User;
 import org.folio.rest.jaxrs.model.UserdataimportCollection;
 import org.folio.rest.jaxrs.resource.UserImport;
+import org.folio.rest.tools.utils.TenantTool;
 import org.folio.service.AddressTypeService;
 import org.folio.service.CustomFieldsService;
 import org.folio.service.DepartmentsService;
+import org.folio.service.ExistingUserReader;
+import org.folio.service.IdempotencyService;
+import org.folio.service.IdempotencyService.SubmittedImport;
+import org.folio.service.ImportCheckpointService;
+import org.folio.service.ImportJobService;
+import org.folio.service.PartitionQueueService;
 import org.folio.service.PatronGroupService;
 import org.folio.service.ServicePointsService;
 import org.folio.service.UserDataProcessingService;
 import org.folio.service.UserPreferenceService;
+import org.folio.util.ConfigUtil;
+import org.folio.util.ExternalSystemIdLocks;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.ImportMetrics;
+import org.folio.util.OkapiHeaders;
+import org.folio.util.PartitionScheduler;
+import org.folio.util.UserPartitioner;
 
 public class UserImportAPI implements UserImport {
 
   private static final Logger LOGGER = LogManager.getLogger(UserImportAPI.class);
 
+  private static final String PARTITION_CONCURRENCY_SETTING = "partition.concurrency";
+  private static final int DEFAULT_PARTITION_CONCURRENCY = 10;
+  private static final String PARTITION_SIZE_SETTING = "partition.size";
+  private static final int DEFAULT_PARTITION_SIZE = 10;
+  private static final String PARTITION_ADAPTIVE_SETTING = "partition.adaptive";
+  private static final String PARTITION_MAX_SIZE_SETTING = "partition.max-size";
+  private static final int DEFAULT_PARTITION_MAX_SIZE = 500;
+  private static final String LOOKUP_MAX_QUERY_LENGTH_SETTING = "lookup.max-query-length";
+  private static final int DEFAULT_LOOKUP_MAX_QUERY_LENGTH = 4000;
+  private static final String USER_CONCURRENCY_SETTING = "user.concurrency";
+  private static final int DEFAULT_USER_CONCURRENCY = 10;
+  private static final String DEACTIVATION_PAGE_SIZE_SETTING = "deactivation.page-size";
+  private static final int DEFAULT_DEACTIVATION_PAGE_SIZE = 1000;
+  private static final String DEACTIVATION_PREFETCH_PAGES_SETTING = "deactivation.prefetch-pages";
+  private static final int DEFAULT_DEACTIVATION_PREFETCH_PAGES = 2;
+  private static final String STREAM_MAX_QUEUED_PARTITIONS_SETTING = "stream.max-queued-partitions";
+  private static final int DEFAULT_STREAM_MAX_QUEUED_PARTITIONS = 10;
+  private static final String STREAM_MAX_LINE_LENGTH_SETTING = "stream.max-line-length";
+  private static final int DEFAULT_STREAM_MAX_LINE_LENGTH = 1024 * 1024;
+
+  // RMB creates an instance per request and calls the stream handler once per chunk
+  private static final Map<String, UserImportStream> streams = new ConcurrentHashMap<>();
+
   private final CustomFieldsService cfService;
   private final UserDataProcessingService udpService;
   private final UserPreferenceService prefService;
@@ -77,24 +141,34 @@ public class UserImportAPI implements UserImport {
   private final DepartmentsService depService;
   private final PatronGroupService pgService;
   private final ServicePointsService spService;
+  private final ImportJobService jobService;
+  private final ImportCheckpointService checkpointService;
+  private final PartitionQueueService queueService;
+  private final IdempotencyService idempotencyService;
 
 
   public UserImportAPI() {
     cfService = new CustomFieldsService();
     depService = new DepartmentsService();
-    udpService = new UserDataProcessingService(depService, cfService);
+    udpService = new UserDataProcessingService();
     prefService = new UserPreferenceService();
     addressService = new AddressTypeService();
     pgService = new PatronGroupService();
     spService = new ServicePointsService();
+    jobService = new ImportJobService();
+    checkpointService = new ImportCheckpointService();
+    queueService = new PartitionQueueService();
+    idempotencyService = new IdempotencyService();
   }
 
   /**
-   * User import entry point.
+   * User import entry point. With async=true the import runs in the background
+   * and the import job is returned right away. An import submitted again while it
+   * runs or after it completed is not run again, see {@link IdempotencyService}.
    */
   @Override
   @Validate
-  public void postUserImport(UserdataimportCollection userCollection, RoutingContext routingContext,
+  public void postUserImport(boolean async, UserdataimportCollection userCollection, RoutingContext routingContext,
       Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) {
 
@@ -106,33 +180,521 @@ public class UserImportAPI implements UserImport {
           .handle(Future.succeededFuture(PostUserImportResponse.respond200WithApplicationJson(emptyResponse)));
       return;
     }
-    prepareUserImportData(userCollection, okapiHeaders)
-        .compose(importData -> startUserImport(importData, okapiHeaders))
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    String idempotencyKey = IdempotencyService.getKey(
+        routingContext.request().getHeader(IdempotencyService.IDEMPOTENCY_KEY_HEADER), userCollection, tenantId);
+    Promise<ImportResponse> importPromise = Promise.promise();
+    SubmittedImport submittedImport = idempotencyKey == null
+        ? null : new SubmittedImport(importPromise.future(), userCollection);
+    SubmittedImport previousImport = idempotencyService.submit(tenantId, idempotencyKey, submittedImport);
+    if (previousImport != null) {
+      if (!previousImport.isSamePayload(submittedImport)) {
+        LOGGER.warn("Idempotency-Key {} was used before for a different import.", idempotencyKey);
+        asyncResultHandler.handle(Future.succeededFuture(
+            PostUserImportResponse.respond422WithTextPlain(IDEMPOTENCY_KEY_REUSED + idempotencyKey)));
+        return;
+      }
+      respondWithSubmittedImport(async, previousImport, userCollection, tenantId, asyncResultHandler);
+      return;
+    }
+    if (async) {
+      // the job is attached before the import starts, a repeated submission gets the same job
+      ImportJob job = submittedImport == null
+          ? jobService.create(tenantId, userCollection.getUsers().size())
+          : submittedImport.attachJob(attachedJob -> attachedJob != null
+              ? attachedJob : jobService.create(tenantId, userCollection.getUsers().size()));
+      LOGGER.info("Started import job {} for {} users.", job.getId(), job.getTotalRecords());
+      asyncResultHandler
+          .handle(Future.succeededFuture(PostUserImportResponse.respond202WithApplicationJson(job)));
+      runUserImport(userCollection, okapiHeaders, processedRecords -> jobService.addProcessedRecords(job, processedRecords))
+          .onSuccess(importResponse -> {
+            LOGGER.info("Import job {} finished: {}", job.getId(), importResponse.getMessage());
+            jobService.complete(job, importResponse);
+          })
+          .onComplete(importPromise);
+      return;
+    }
+    runUserImport(userCollection, okapiHeaders, processedRecords -> { })
+        .onComplete(importPromise)
+        .onComplete(handler -> respondWithImportResponse(handler, asyncResultHandler));
+  }
+
+  /**
+   * Respond to an import that was submitted before with the running or completed import.
+   * If it was run in the background, its job is returned, otherwise a job is created for it.
+   */
+  private void respondWithSubmittedImport(boolean async, SubmittedImport submittedImport,
+      UserdataimportCollection userCollection, String tenantId, Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    if (!async) {
+      submittedImport.getResponse().onComplete(handler -> respondWithImportResponse(handler, asyncResultHandler));
+      return;
+    }
+    ImportJob attachedJob = submittedImport.attachJob(submittedJob -> {
+      if (submittedJob != null && jobService.get(tenantId, submittedJob.getId()).isPresent()) {
+        return submittedJob;
+      }
+      ImportJob job = jobService.create(tenantId, userCollection.getUsers().size());
+      submittedImport.getResponse().onSuccess(importResponse -> jobService.complete(job, importResponse));
+      return job;
+    });
+    // respond with a copy, the attached job is updated while the import runs
+    ImportJob job = jobService.get(tenantId, attachedJob.getId()).orElse(attachedJob);
+    asyncResultHandler.handle(Future.succeededFuture(PostUserImportResponse.respond202WithApplicationJson(job)));
+  }
+
+  private void respondWithImportResponse(AsyncResult<ImportResponse> handler,
+      Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    if (handler.succeeded() && handler.result() != null && handler.result().getError() == null) {
+      asyncResultHandler
+          .handle(Future.succeededFuture(PostUserImportResponse.respond200WithApplicationJson(handler.result())));
+    } else {
+      asyncResultHandler
+          .handle(Future.succeededFuture(PostUserImportResponse.respond500WithApplicationJson(handler.result())));
+    }
+  }
+
+  /**
+   * List the import jobs of the tenant, most recent first.
+   */
+  @Override
+  @Validate
+  public void getUserImport(RoutingContext routingContext, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    try {
+      List<ImportJob> jobs = jobService.list(TenantTool.tenantId(okapiHeaders));
+      ImportJobCollection jobCollection = new ImportJobCollection()
+          .withImportJobs(jobs)
+          .withTotalRecords(jobs.size());
+      asyncResultHandler.handle(Future.succeededFuture(GetUserImportResponse.respond200WithApplicationJson(jobCollection)));
+    } catch (Exception e) {
+      LOGGER.error("Failed to list import jobs", e);
+      asyncResultHandler.handle(Future.succeededFuture(GetUserImportResponse.respond500WithTextPlain(e.getMessage())));
+    }
+  }
+
+  /**
+   * Get the progress of an import job, or its result once it has finished.
+   */
+  @Override
+  @Validate
+  public void getUserImportByJobId(String jobId, RoutingContext routingContext, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    try {
+      Response response = jobService.get(TenantTool.tenantId(okapiHeaders), jobId)
+          .map(GetUserImportByJobIdResponse::respond200WithApplicationJson)
+          .orElseGet(() -> GetUserImportByJobIdResponse.respond404WithTextPlain("Import job not found: " + jobId));
+      asyncResultHandler.handle(Future.succeededFuture(response));
+    } catch (Exception e) {
+      LOGGER.error("Failed to get import job {}", jobId, e);
+      asyncResultHandler.handle(Future.succeededFuture(GetUserImportByJobIdResponse.respond500WithTextPlain(e.getMessage())));
+    }
+  }
+
+  /**
+   * NDJSON import entry point. It is called for every chunk of the body and once more
+   * when the body is complete or the request was aborted. Users are imported in partitions
+   * while the body is read, reading is paused while too many partitions are waiting.
+   */
+  @Override
+  @Validate
+  @Stream
+  public void postUserImportStream(InputStream entity, RoutingContext routingContext,
+      Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
+      Context vertxContext) {
+
+    String streamId = okapiHeaders.get(RestVerticle.STREAM_ID);
+    if (okapiHeaders.containsKey(RestVerticle.STREAM_ABORT)) {
+      LOGGER.warn("User import stream {} was aborted.", streamId);
+      streams.remove(streamId);
+      asyncResultHandler.handle(Future.succeededFuture(PostUserImportStreamResponse.respond400WithTextPlain("Aborted")));
+      return;
+    }
+    UserImportStream stream = streams.computeIfAbsent(streamId, id -> new UserImportStream(id, routingContext,
+        OkapiHeaders.of(okapiHeaders),
+        ConfigUtil.getInt(STREAM_MAX_LINE_LENGTH_SETTING, DEFAULT_STREAM_MAX_LINE_LENGTH),
+        ConfigUtil.getInt(STREAM_MAX_QUEUED_PARTITIONS_SETTING, DEFAULT_STREAM_MAX_QUEUED_PARTITIONS)));
+    boolean complete = okapiHeaders.containsKey(RestVerticle.STREAM_COMPLETE);
+    try {
+      if (entity != null && stream.getBadRequest() == null) {
+        stream.append(Buffer.buffer(entity.readAllBytes()), line -> handleStreamLine(stream, line));
+      }
+      if (complete && stream.getBadRequest() == null) {
+        stream.end(line -> handleStreamLine(stream, line));
+        submitStreamPartition(stream);
+      }
+    } catch (IOException | IllegalStateException e) {
+      LOGGER.warn("Failed to read user import stream {}: {}", streamId, e.getMessage());
+      stream.setBadRequest(e.getMessage());
+      resumeStreamIfReady(stream);
+    }
+    if (complete) {
+      stream.setCompletionHandler(asyncResultHandler);
+      completeStreamIfDone(stream);
+    }
+  }
+
+  private void handleStreamLine(UserImportStream stream, String line) {
+    if (stream.getBadRequest() != null) {
+      return;
+    }
+    if (!stream.isHeaderRead()) {
+      stream.setHeaderRead(true);
+      startStreamImport(stream, line);
+      return;
+    }
+    User user;
+    try {
+      user = new JsonObject(line).mapTo(User.class);
+    } catch (RuntimeException e) {
+      stream.addFailedUser(new FailedUser().withErrorMessage(INVALID_USER_RECORD + e.getMessage()));
+      return;
+    }
+    if (Strings.isNullOrEmpty(user.getExternalSystemId()) || Strings.isNullOrEmpty(user.getUsername())) {
+      stream.addFailedUser(getFailedUser(user, INVALID_USER_RECORD + "username and externalSystemId are required"));
+      return;
+    }
+    stream.getCurrentPartition().add(user);
+    if (stream.getCurrentPartition().size() >= stream.getPartitionSize()) {
+      submitStreamPartition(stream);
+    }
+  }
+
+  /**
+   * Read the import options from the first line and prepare the system data. The body
+   * is paused until the system data is available.
+   */
+  private void startStreamImport(UserImportStream stream, String line) {
+    UserdataimportCollection options;
+    try {
+      options = new JsonObject(line).mapTo(UserdataimportCollection.class)
+          .withUsers(new ArrayList<>())
+          .withTotalRecords(0);
+    } catch (RuntimeException e) {
+      stream.setBadRequest(INVALID_STREAM_HEADER + e.getMessage());
+      return;
+    }
+    if (Boolean.TRUE.equals(options.getDeactivateMissingUsers())) {
+      stream.setBadRequest(STREAM_DEACTIVATION_NOT_SUPPORTED);
+      return;
+    }
+    Map<String, String> okapiHeaders = stream.getOkapiHeaders();
+    UserImportData importData = new UserImportData(options);
+    stream.setPartitionSize(getPartitionSize(importData, okapiHeaders));
+    pauseStream(stream);
+    prepareUserImportData(importData, okapiHeaders)
+        .onSuccess(preparedData -> {
+          stream.setImportData(preparedData);
+          stream.setScheduler(createPartitionScheduler(preparedData, okapiHeaders,
+              currentPartition -> processUserBatch(okapiHeaders, currentPartition, preparedData.forUsers(currentPartition),
+                  latency -> { })));
+        })
+        .onFailure(e -> stream.setError(FAILED_TO_IMPORT_USERS + extractErrorMessage(e)))
+        .onComplete(ar -> {
+          List<List<User>> waitingPartitions = new ArrayList<>(stream.getWaitingPartitions());
+          stream.getWaitingPartitions().clear();
+          waitingPartitions.forEach(partition -> submitStreamPartition(stream, partition));
+          resumeStreamIfReady(stream);
+          completeStreamIfDone(stream);
+        });
+  }
+
+  private void submitStreamPartition(UserImportStream stream) {
+    List<User> partition = stream.getCurrentPartition();
+    if (!partition.isEmpty()) {
+      stream.setCurrentPartition(new ArrayList<>());
+      submitStreamPartition(stream, partition);
+    }
+  }
+
+  private void submitStreamPartition(UserImportStream stream, List<User> partition) {
+    if (stream.getError() != null) {
+      partition.forEach(user -> stream.addFailedUser(getFailedUser(user, stream.getError())));
+      return;
+    }
+    if (stream.getScheduler() == null) {
+      stream.getWaitingPartitions().add(partition);
+      return;
+    }
+    stream.setPendingPartitions(stream.getPendingPartitions() + 1);
+    stream.getScheduler().submit(partition)
+        .onComplete(ar -> {
+          stream.setPendingPartitions(stream.getPendingPartitions() - 1);
+          stream.addResponse(ar.succeeded() ? ar.result()
+              : processErrorResponse(partition, FAILED_TO_IMPORT_USERS + extractErrorMessage(ar.cause())));
+          resumeStreamIfReady(stream);
+          completeStreamIfDone(stream);
+        });
+    if (stream.getScheduler().getQueueDepth() >= stream.getMaxQueuedPartitions()) {
+      pauseStream(stream);
+    }
+  }
+
+  private void pauseStream(UserImportStream stream) {
+    if (!stream.isPaused()) {
+      stream.getRoutingContext().request().pause();
+      stream.setPaused(true);
+    }
+  }
+
+  private void resumeStreamIfReady(UserImportStream stream) {
+    boolean ready = stream.isFailed() || stream.getScheduler() != null
+        && stream.getScheduler().getQueueDepth() < stream.getMaxQueuedPartitions();
+    if (stream.isPaused() && ready) {
+      stream.setPaused(false);
+      stream.getRoutingContext().request().resume();
+    }
+  }
+
+  private void completeStreamIfDone(UserImportStream stream) {
+    if (!stream.isComplete()) {
+      return;
+    }
+    streams.remove(stream.getStreamId());
+    Handler<AsyncResult<Response>> asyncResultHandler = stream.getCompletionHandler();
+    stream.setCompletionHandler(null);
+    if (stream.getBadRequest() != null) {
+      asyncResultHandler.handle(Future.succeededFuture(
+          PostUserImportStreamResponse.respond400WithTextPlain(stream.getBadRequest())));
+      return;
+    }
+    ImportResponse importResponse = stream.toImportResponse();
+    if (stream.getImportData() != null) {
+      importResponse.setTimings(stream.getImportData().getTimer()
+          .toImportTimings(OkapiHeaders.of(stream.getOkapiHeaders()).getRequestCount()));
+    }
+    if (!stream.isHeaderRead()) {
+      importResponse.setMessage("No users to import.");
+      asyncResultHandler.handle(Future.succeededFuture(
+          PostUserImportStreamResponse.respond200WithApplicationJson(importResponse)));
+    } else if (stream.getError() != null) {
+      importResponse.setMessage(FAILED_TO_IMPORT_USERS);
+      asyncResultHandler.handle(Future.succeededFuture(
+          PostUserImportStreamResponse.respond500WithApplicationJson(importResponse)));
+    } else {
+      importResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
+      asyncResultHandler.handle(Future.succeededFuture(
+          PostUserImportStreamResponse.respond200WithApplicationJson(importResponse)));
+    }
+  }
+
+  /**
+   * Run the whole import. Failures are reported in the returned import response,
+   * the future itself does not fail.
+   */
+  Future<ImportResponse> runUserImport(UserdataimportCollection userCollection,
+      Map<String, String> okapiHeaders, IntConsumer partitionListener) {
+
+    OkapiHeaders importHeaders = OkapiHeaders.of(okapiHeaders);
+    int receivedRecords = userCollection.getUsers().size();
+    List<FailedUser> rejectedUsers = removeDuplicates(userCollection);
+    partitionListener.accept(receivedRecords - userCollection.getUsers().size());
+    if (!rejectedUsers.isEmpty() && Boolean.TRUE.equals(userCollection.getDeactivateMissingUsers())) {
+      LOGGER.warn("Users with duplicate externalSystemIds were rejected, skipping deactivation.");
+      userCollection.setDeactivateMissingUsers(false);
+      return runDeduplicatedImport(userCollection, importHeaders, partitionListener, rejectedUsers)
+          .map(importResponse -> importResponse.withMessage(importResponse.getError() == null
+              ? USERS_WERE_IMPORTED_SUCCESSFULLY + " " + USER_DEACTIVATION_SKIPPED
+              : importResponse.getMessage()));
+    }
+    return runDeduplicatedImport(userCollection, importHeaders, partitionListener, rejectedUsers);
+  }
+
+  /**
+   * Import the users left after removing the duplicates and add the rejected users to the response.
+   */
+  private Future<ImportResponse> runDeduplicatedImport(UserdataimportCollection userCollection,
+      OkapiHeaders importHeaders, IntConsumer partitionListener, List<FailedUser> rejectedUsers) {
+
+    if (userCollection.getUsers().isEmpty()) {
+      ImportResponse importResponse = processFutureResponses(Collections.emptyList());
+      importResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
+      return Future.succeededFuture(addFailedUsers(importResponse, rejectedUsers));
+    }
+    if (PartitionQueueService.isEnabled() && !Boolean.TRUE.equals(userCollection.getDeactivateMissingUsers())) {
+      return runQueuedImport(userCollection, importHeaders, partitionListener)
+          .map(importResponse -> addFailedUsers(importResponse, rejectedUsers));
+    }
+    UserImportData userImportData = new UserImportData(userCollection).withPartitionListener(partitionListener);
+    return loadCheckpoint(userCollection, importHeaders)
+        .map(checkpoint -> {
+          userImportData.partitionProcessed(checkpoint.getCommittedRecords());
+          return userImportData.withCheckpoint(checkpoint);
+        })
+        .compose(importData -> prepareUserImportData(importData, importHeaders))
+        .compose(importData -> startUserImport(importData, importHeaders))
+        .compose(importResponse -> completeCheckpoint(importResponse, userImportData, importHeaders))
         .otherwise(throwable -> processErrorResponse(userCollection.getUsers(), throwable.getMessage()))
-        .onComplete(handler -> {
-          if (handler.succeeded() && handler.result() != null && handler.result().getError() == null) {
-            asyncResultHandler
-                .handle(Future.succeededFuture(PostUserImportResponse.respond200WithApplicationJson(handler.result())));
-          } else {
-            asyncResultHandler
-                .handle(Future.succeededFuture(PostUserImportResponse.respond500WithApplicationJson(handler.result())));
+        .map(importResponse -> addFailedUsers(importResponse, rejectedUsers).withTimings(
+            userImportData.getTimer().toImportTimings(importHeaders.getRequestCount())));
+  }
+
+  /**
+   * Load the checkpoint of the import. The import is only hashed for its id if the imports
+   * of the tenant are checkpointed.
+   */
+  private Future<ImportCheckpoint> loadCheckpoint(UserdataimportCollection userCollection,
+      Map<String, String> okapiHeaders) {
+
+    if (!ImportCheckpointService.isEnabled(TenantTool.tenantId(okapiHeaders))) {
+      return Future.succeededFuture(ImportCheckpoint.disabled());
+    }
+    // the id is the hash of the import as sent, before the import data takes the request preferences
+    return checkpointService.load(okapiHeaders, ImportCheckpointService.getImportId(userCollection));
+  }
+
+  /**
+   * Remove the users whose externalSystemId appears more than once in the import, so no
+   * two of them are created at the same time. With the LAST_WINS duplicate policy the last
+   * of them is imported, with REJECT none of them.
+   *
+   * @return the rejected users
+   */
+  private List<FailedUser> removeDuplicates(UserdataimportCollection userCollection) {
+    List<User> users = userCollection.getUsers();
+    Map<String, Integer> lastOccurrences = new HashMap<>();
+    Set<String> duplicates = new HashSet<>();
+    for (int i = 0; i < users.size(); i++) {
+      String externalSystemId = users.get(i).getExternalSystemId();
+      if (externalSystemId != null && lastOccurrences.put(externalSystemId, i) != null) {
+        duplicates.add(externalSystemId);
+      }
+    }
+    if (duplicates.isEmpty()) {
+      return Collections.emptyList();
+    }
+    boolean reject = userCollection.getDuplicatePolicy() == UserdataimportCollection.DuplicatePolicy.REJECT;
+    List<User> uniqueUsers = new ArrayList<>(users.size());
+    List<FailedUser> rejectedUsers = new ArrayList<>();
+    for (int i = 0; i < users.size(); i++) {
+      User user = users.get(i);
+      String externalSystemId = user.getExternalSystemId();
+      if (externalSystemId == null || !duplicates.contains(externalSystemId)) {
+        uniqueUsers.add(user);
+      } else if (reject) {
+        rejectedUsers.add(getFailedUser(user, DUPLICATE_EXTERNAL_SYSTEM_ID + externalSystemId));
+      } else if (lastOccurrences.get(externalSystemId) == i) {
+        uniqueUsers.add(user);
+      }
+    }
+    LOGGER.warn("{} externalSystemIds appear more than once in the import, {} users {}.", duplicates.size(),
+        users.size() - uniqueUsers.size(), reject ? "rejected" : "replaced by a later one");
+    userCollection.setUsers(uniqueUsers);
+    userCollection.setTotalRecords(uniqueUsers.size());
+    return rejectedUsers;
+  }
+
+  private ImportResponse addFailedUsers(ImportResponse importResponse, List<FailedUser> failedUsers) {
+    if (failedUsers.isEmpty()) {
+      return importResponse;
+    }
+    importResponse.getFailedUsers().addAll(failedUsers);
+    return importResponse
+        .withTotalRecords(importResponse.getTotalRecords() + failedUsers.size())
+        .withFailedRecords(importResponse.getFailedRecords() + failedUsers.size());
+  }
+
+  /**
+   * Queue the partitions of the import for all module instances and wait until they are
+   * imported. If the import is queued already, e.g. it was sent again after the instance that
+   * received it crashed, the queued partitions are awaited. Partitions abandoned after too many
+   * attempts are reported as failed. The included departments and custom fields are written
+   * here once, not by every partition.
+   */
+  private Future<ImportResponse> runQueuedImport(UserdataimportCollection userCollection,
+      Map<String, String> okapiHeaders, IntConsumer partitionListener) {
+
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    // the same id as a checkpointed import, an import sent again waits for the queued partitions
+    String importId = ImportCheckpointService.getImportId(userCollection);
+    List<UserdataimportCollection> partitions = PartitionQueueService.split(userCollection, tenantId);
+    return prepareIncludedData(userCollection, okapiHeaders)
+        .compose(v -> queueService.enqueue(okapiHeaders, tenantId, importId, partitions)
+            .compose(queued -> queueService.await(tenantId, importId, partitionListener))
+            .compose(queuedPartitions -> queueService.delete(tenantId, importId).map(queuedPartitions),
+                e -> queueService.delete(tenantId, importId).compose(x -> Future.failedFuture(e))))
+        .map(queuedPartitions -> {
+          List<ImportResponse> responses = new ArrayList<>();
+          for (QueuedPartition partition : queuedPartitions) {
+            if (partition.getResponse() != null) {
+              responses.add(partition.getResponse());
+            } else if (partition.getSequence() < partitions.size()) {
+              List<User> users = partitions.get(partition.getSequence()).getUsers();
+              responses.add(processErrorResponse(users, FAILED_TO_IMPORT_USERS + PARTITION_ABANDONED));
+              partitionListener.accept(users.size());
+            }
           }
-        });
+          ImportResponse importResponse = processFutureResponses(responses);
+          importResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
+          return importResponse;
+        })
+        .otherwise(e -> processErrorResponse(userCollection.getUsers(), FAILED_TO_IMPORT_USERS + extractErrorMessage(e)));
+  }
+
+  /**
+   * Create or update the departments and custom fields included in a queued import and refresh
+   * the reference data if requested, without the users.
+   */
+  private Future<Void> prepareIncludedData(UserdataimportCollection userCollection, Map<String, String> okapiHeaders) {
+    if (userCollection.getIncluded() == null && !Boolean.TRUE.equals(userCollection.getRefreshReferenceData())) {
+      return Future.succeededFuture();
+    }
+    UserImportData importData = new UserImportData(new UserdataimportCollection()
+        .withUsers(new ArrayList<>())
+        .withTotalRecords(0)
+        .withIncluded(userCollection.getIncluded())
+        .withRefreshReferenceData(userCollection.getRefreshReferenceData()));
+    return prepareUserImportData(importData, okapiHeaders).mapEmpty();
   }
 
-  private Future<UserImportData> prepareUserImportData(UserdataimportCollection userCollection,
+  /**
+   * Import a partition claimed from the partition queue with the headers of the instance
+   * that queued it.
+   */
+  Future<ImportResponse> importQueuedPartition(UserdataimportCollection userCollection,
       Map<String, String> okapiHeaders) {
 
-    UserImportData importData = new UserImportData(userCollection);
+    OkapiHeaders importHeaders = OkapiHeaders.of(okapiHeaders);
+    UserImportData userImportData = new UserImportData(userCollection);
+    return prepareUserImportData(userImportData, importHeaders)
+        .compose(importData -> startImport(importData, importHeaders))
+        .otherwise(throwable -> processErrorResponse(userCollection.getUsers(), throwable.getMessage()));
+  }
+
+  /**
+   * Remove the checkpoints of the completed import, also if users or the import failed, and
+   * add the users imported before a restart to the response. The checkpoints are only kept if
+   * the import was interrupted, so it can be resumed by sending it again.
+   */
+  private Future<ImportResponse> completeCheckpoint(ImportResponse importResponse, UserImportData userImportData,
+      Map<String, String> okapiHeaders) {
+
+    ImportCheckpoint checkpoint = userImportData.getCheckpoint();
+    return checkpointService.delete(okapiHeaders, checkpoint)
+        .map(v -> importResponse.getError() == null ? checkpoint.addCommittedRecords(importResponse) : importResponse);
+  }
+
+  private Future<UserImportData> prepareUserImportData(UserImportData importData,
+      Map<String, String> okapiHeaders) {
+
+    long start = System.nanoTime();
     UserSystemData.UserSystemDataBuilder systemDataBuilder = UserSystemData.builder();
 
-    Future<Map<String, String>> addressTypesFuture = addressService.getAddressTypes(okapiHeaders)
+    boolean refresh = importData.isRefreshReferenceData();
+
+    Future<Map<String, String>> addressTypesFuture = (refresh
+        ? addressService.refreshAddressTypes(okapiHeaders) : addressService.getAddressTypes(okapiHeaders))
         .onSuccess(systemDataBuilder::addressTypes);
 
-    Future<Map<String, String>> patronGroupsFuture = pgService.getPatronGroups(okapiHeaders)
+    Future<Map<String, String>> patronGroupsFuture = (refresh
+        ? pgService.refreshPatronGroups(okapiHeaders) : pgService.getPatronGroups(okapiHeaders))
         .onSuccess(systemDataBuilder::patronGroups);
 
-    Future<Map<String, String>> servicePointsFuture = spService.getServicePoints(okapiHeaders)
+    Future<Map<String, String>> servicePointsFuture = (refresh
+        ? spService.refreshServicePoints(okapiHeaders) : spService.getServicePoints(okapiHeaders))
         .onSuccess(systemDataBuilder::servicePoints);
 
     Future<Set<CustomField>> customFieldsFuture = cfService.prepareCustomFields(importData, okapiHeaders)
@@ -143,6 +705,7 @@ public class UserImportAPI implements UserImport {
 
     return CompositeFuture
         .all(addressTypesFuture, patronGroupsFuture, servicePointsFuture, customFieldsFuture, departmentsFuture)
+        .onComplete(ar -> importData.getTimer().record(Phase.REFERENCE_DATA_PREPARATION, start))
         .map(o -> importData.withSystemData(systemDataBuilder.build()));
   }
 
@@ -164,88 +727,163 @@ public class UserImportAPI implements UserImport {
   }
 
   /**
-   * Start importing users if deactivation is needed. In this case all users
-   * should be queried to be able to tell which ones need to be deactivated
-   * after the import.
+   * Start importing users if deactivation is needed. The existing users are
+   * read page by page in externalSystemId order and diffed against the
+   * incoming users: matched users are updated with the page, the remaining
+   * incoming users are created afterwards and only the active existing users
+   * without a match are kept to be deactivated after the import.
    */
   private Future<ImportResponse> startImportWithDeactivatingUsers(UserImportData userImportData,
       Map<String, String> okapiHeaders) {
 
-    return listAllUsersWithExternalSystemId(okapiHeaders, userImportData.getSourceType())
-        .compose(existingUsers -> {
-          final Map<String, User> existingUserMap;
-          try {
-            existingUserMap = udpService.extractExistingUsers(existingUsers);
-          } catch (UserMappingFailedException e) {
-            ImportResponse userMappingFailureResponse = processErrorResponse(userImportData.getUsers(), USER_SCHEMA_MISMATCH);
-            return Future.succeededFuture(userMappingFailureResponse);
-          }
-          List<Future<ImportResponse>> futures = processAllUsersInPartitions(userImportData, existingUserMap, okapiHeaders);
-          return GenericCompositeFuture.all(futures)
-              .compose(ar -> {
-                LOGGER.info("Processing user search result.");
-                ImportResponse compositeResponse = processFutureResponses(futures);
-                if (existingUserMap.isEmpty()) {
-                  compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
-                  return Future.succeededFuture(compositeResponse);
-                } else if (compositeResponse.getFailedRecords() > 0) {
-                  LOGGER.warn("Failed to import all users, skipping deactivation.");
-                  compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY + " " + USER_DEACTIVATION_SKIPPED);
+    Map<String, List<User>> incomingUsers = groupByExternalSystemId(userImportData);
+    Map<String, User> usersToDeactivate = new LinkedHashMap<>();
+    AtomicBoolean missingUsers = new AtomicBoolean();
+    List<ImportResponse> responses = new ArrayList<>();
+
+    return createExistingUserReader(okapiHeaders, userImportData.getSourceType())
+        .withFetchTimeListener(nanos -> userImportData.getTimer().add(Phase.EXISTING_USER_LOOKUP, nanos))
+        .read(existingUsers -> processExistingUserPage(existingUsers, incomingUsers, usersToDeactivate, missingUsers,
+            userImportData, okapiHeaders).onSuccess(responses::add).mapEmpty())
+        .recover(e -> e instanceof UserMappingFailedException
+            ? Future.failedFuture(e)
+            : HttpClientUtil.errorManagement(e, FAILED_TO_PROCESS_USER_SEARCH_RESULT))
+        .compose(x -> processNewUsers(incomingUsers, userImportData, okapiHeaders))
+        .compose(newUserResponses -> {
+          LOGGER.info("Processing user search result.");
+          responses.addAll(newUserResponses);
+          ImportResponse compositeResponse = processFutureResponses(responses);
+          if (!missingUsers.get()) {
+            compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
+            return Future.succeededFuture(compositeResponse);
+          } else if (compositeResponse.getFailedRecords() > 0) {
+            LOGGER.warn("Failed to import all users, skipping deactivation.");
+            compositeResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY + " " + USER_DEACTIVATION_SKIPPED);
+            return Future.succeededFuture(compositeResponse);
+          } else {
+            return userImportData.getTimer().time(Phase.DEACTIVATION,
+                    () -> deactivateUsers(okapiHeaders, usersToDeactivate))
+                .recover(e -> {
+                  LOGGER.warn("Ignore error for deactivate user {}", e.getMessage());
+                  return Future.succeededFuture();
+                })
+                .compose(deactivateHandler -> {
+                  compositeResponse.setMessage("Deactivated missing users.");
                   return Future.succeededFuture(compositeResponse);
-                } else {
-                  return deactivateUsers(okapiHeaders, existingUserMap)
-                      .recover(e -> {
-                        LOGGER.warn("Ignore error for deactivate user {}", e.getMessage());
-                        return Future.succeededFuture();
-                      })
-                      .compose(deactivateHandler -> {
-                        compositeResponse.setMessage("Deactivated missing users.");
-                        return Future.succeededFuture(compositeResponse);
-                      });
-                }
-              });
+                });
+          }
         })
         .recover(e -> {
+          if (e instanceof UserMappingFailedException) {
+            return Future.succeededFuture(processErrorResponse(userImportData.getUsers(), USER_SCHEMA_MISMATCH));
+          }
           ImportResponse userListingFailureResponse =
               processErrorResponse(userImportData.getUsers(), FAILED_TO_IMPORT_USERS + extractErrorMessage(e));
           return Future.succeededFuture(userListingFailureResponse);
         });
-}
+  }
 
   /**
-   * Create partitions from all users, process them and return the list of
-   * Futures of the partition processing.
+   * Group the incoming users by the externalSystemId they will be stored with.
+   * The users are in memory anyway, so they are hashed instead of sorted.
    */
-  private List<Future<ImportResponse>> processAllUsersInPartitions(UserImportData userImportData,
-      Map<String, User> existingUserMap, Map<String, String> okapiHeaders) {
-
-    List<List<User>> userPartitions = Lists.partition(userImportData.getUsers(), 10);
-    List<Future<ImportResponse>> futures = new ArrayList<>();
-    for (List<User> currentPartition : userPartitions) {
-      Future<ImportResponse> userSearchAsyncResult
-          = processUserSearchResult(okapiHeaders, existingUserMap, currentPartition, userImportData);
-      futures.add(userSearchAsyncResult);
+  private Map<String, List<User>> groupByExternalSystemId(UserImportData userImportData) {
+    String prefix = getExternalSystemIdPrefix(userImportData);
+    Map<String, List<User>> incomingUsers = new LinkedHashMap<>();
+    for (User user : userImportData.getUsers()) {
+      incomingUsers.computeIfAbsent(prefix + user.getExternalSystemId(), id -> new ArrayList<>()).add(user);
     }
-    return futures;
+    return incomingUsers;
+  }
+
+  private String getExternalSystemIdPrefix(UserImportData userImportData) {
+    return Strings.isNullOrEmpty(userImportData.getSourceType()) ? "" : userImportData.getSourceType() + "_";
   }
 
   /**
-   * Start user import. Partition and process users in batches of 10.
+   * Diff one page of existing users against the incoming users. The incoming
+   * users matching the page are updated, the active existing users without a
+   * match are remembered for deactivation, the rest of the page is dropped.
    */
-  private Future<ImportResponse> startImport(UserImportData userImportData, Map<String, String> okapiHeaders) {
-
-    List<List<User>> userPartitions = Lists.partition(userImportData.getUsers(), 10);
+  private Future<ImportResponse> processExistingUserPage(List<Map> existingUserPage,
+      Map<String, List<User>> incomingUsers, Map<String, User> usersToDeactivate, AtomicBoolean missingUsers,
+      UserImportData userImportData, Map<String, String> okapiHeaders) {
 
-    List<Future<ImportResponse>> futures = new ArrayList<>();
+    Map<String, User> existingUsers;
+    try {
+      existingUsers = udpService.extractExistingUsers(existingUserPage);
+    } catch (UserMappingFailedException e) {
+      return Future.failedFuture(e);
+    }
+    Map<String, User> matchedUsers = new HashMap<>();
+    List<User> usersToUpdate = new ArrayList<>();
+    existingUsers.forEach((externalSystemId, existingUser) -> {
+      List<User> matched = incomingUsers.remove(externalSystemId);
+      if (matched != null) {
+        matchedUsers.put(externalSystemId, existingUser);
+        usersToUpdate.addAll(matched);
+      } else {
+        missingUsers.set(true);
+        if (Boolean.TRUE.equals(existingUser.getActive())) {
+          usersToDeactivate.put(externalSystemId, existingUser);
+        }
+      }
+    });
+    if (usersToUpdate.isEmpty()) {
+      return Future.succeededFuture(processFutureResponses(Collections.emptyList()));
+    }
+    return withExternalSystemIdLocks(usersToUpdate, userImportData, okapiHeaders,
+            () -> processUserSearchResult(okapiHeaders, matchedUsers, usersToUpdate, userImportData))
+        .onComplete(ar -> userImportData.partitionProcessed(usersToUpdate.size()))
+        .recover(e -> {
+          LOGGER.error(FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
+          return Future.succeededFuture(processErrorResponse(usersToUpdate,
+              FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e)));
+        });
+  }
 
-    for (List<User> currentPartition : userPartitions) {
-      Future<ImportResponse> userBatchProcessResponse
-          = processUserBatch(okapiHeaders, currentPartition, userImportData);
-      futures.add(userBatchProcessResponse);
+  /**
+   * Create the incoming users that did not match any existing user, in partitions.
+   */
+  private Future<List<ImportResponse>> processNewUsers(Map<String, List<User>> incomingUsers,
+      UserImportData userImportData, Map<String, String> okapiHeaders) {
+
+    List<User> newUsers = incomingUsers.values().stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+    if (newUsers.isEmpty()) {
+      return Future.succeededFuture(Collections.emptyList());
     }
-    return GenericCompositeFuture.all(futures)
-        .map(res -> {
-          ImportResponse successResponse = processFutureResponses(futures);
+    UserPartitioner partitioner = new UserPartitioner(newUsers, userImportData.getSourceType(),
+        getPartitionSize(userImportData, okapiHeaders));
+    PartitionScheduler<List<User>, ImportResponse> scheduler = createPartitionScheduler(userImportData, okapiHeaders,
+        currentPartition -> withExternalSystemIdLocks(currentPartition, userImportData, okapiHeaders,
+            () -> processUserSearchResult(okapiHeaders, new HashMap<>(), currentPartition, userImportData))
+            .recover(e -> {
+              LOGGER.error(FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
+              return Future.succeededFuture(processErrorResponse(currentPartition,
+                  FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e)));
+            }));
+    return scheduler.process(partitioner, partitioner::getRemainingPartitions);
+  }
+
+  /**
+   * Start user import. Partition and process users in batches, only a
+   * limited number of batches is processed at the same time.
+   */
+  private Future<ImportResponse> startImport(UserImportData userImportData, Map<String, String> okapiHeaders) {
+
+    List<User> users = userImportData.getCheckpoint().withoutCommitted(userImportData.getUsers());
+    UserPartitioner partitioner = createUserPartitioner(users, userImportData, okapiHeaders);
+    PartitionScheduler<List<User>, ImportResponse> scheduler = createPartitionScheduler(userImportData, okapiHeaders,
+        currentPartition -> processUserBatch(okapiHeaders, currentPartition, userImportData,
+            latency -> partitioner.recordLookup(currentPartition.size(), latency)));
+    LOGGER.info("Importing {} users in partitions of {}, at most {} partitions in flight.",
+        partitioner.getRemainingUsers(), partitioner.getCurrentSize(), scheduler.getMaxInFlight());
+
+    return scheduler.process(partitioner, partitioner::getRemainingPartitions)
+        .map(responses -> {
+          ImportResponse successResponse = processFutureResponses(responses);
           successResponse.setMessage(USERS_WERE_IMPORTED_SUCCESSFULLY);
           return successResponse;
         })
@@ -256,14 +894,63 @@ public class UserImportAPI implements UserImport {
         });
   }
 
+  private PartitionScheduler<List<User>, ImportResponse> createPartitionScheduler(UserImportData userImportData,
+      Map<String, String> okapiHeaders, Function<List<User>, Future<ImportResponse>> processor) {
+
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    int concurrency = ConfigUtil.getInt(PARTITION_CONCURRENCY_SETTING, DEFAULT_PARTITION_CONCURRENCY);
+    return new PartitionScheduler<>(concurrency, currentPartition -> {
+      ImportMetrics.partitionStarted(tenantId);
+      return processor.apply(currentPartition)
+          .onComplete(ar -> {
+            ImportMetrics.partitionCompleted(tenantId);
+            userImportData.partitionProcessed(currentPartition.size());
+          });
+    }, delta -> ImportMetrics.partitionsQueued(tenantId, delta));
+  }
+
+  /**
+   * Create the partitioner for the user lookups. The partition size and the
+   * adaptive mode come from the request and fall back to the tenant settings.
+   */
+  private UserPartitioner createUserPartitioner(List<User> users, UserImportData userImportData,
+      Map<String, String> okapiHeaders) {
+
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    boolean adaptive = userImportData.getAdaptivePartitionSize() != null
+        ? userImportData.getAdaptivePartitionSize()
+        : ConfigUtil.getBoolean(PARTITION_ADAPTIVE_SETTING, tenantId, false);
+    return new UserPartitioner(users, userImportData.getSourceType(),
+        getPartitionSize(userImportData, okapiHeaders), adaptive,
+        ConfigUtil.getInt(PARTITION_MAX_SIZE_SETTING, tenantId, DEFAULT_PARTITION_MAX_SIZE),
+        ConfigUtil.getInt(LOOKUP_MAX_QUERY_LENGTH_SETTING, DEFAULT_LOOKUP_MAX_QUERY_LENGTH));
+  }
+
+  private int getPartitionSize(UserImportData userImportData, Map<String, String> okapiHeaders) {
+    if (userImportData.getPartitionSize() != null) {
+      return userImportData.getPartitionSize();
+    }
+    return ConfigUtil.getInt(PARTITION_SIZE_SETTING, TenantTool.tenantId(okapiHeaders), DEFAULT_PARTITION_SIZE);
+  }
+
   /**
    * Process a batch of users. Extract existing users from the user list and
    * process the result (create non-existing, update existing users).
    */
   private Future<ImportResponse> processUserBatch(Map<String, String> okapiHeaders,
-      List<User> currentPartition, UserImportData userImportData) {
+      List<User> currentPartition, UserImportData userImportData, LongConsumer lookupLatencyListener) {
 
-    return listUsers(okapiHeaders, currentPartition, userImportData.getSourceType())
+    return withExternalSystemIdLocks(currentPartition, userImportData, okapiHeaders,
+        () -> lookUpAndProcessUserBatch(okapiHeaders, currentPartition, userImportData, lookupLatencyListener));
+  }
+
+  private Future<ImportResponse> lookUpAndProcessUserBatch(Map<String, String> okapiHeaders,
+      List<User> currentPartition, UserImportData userImportData, LongConsumer lookupLatencyListener) {
+
+    long lookupStart = System.currentTimeMillis();
+    return userImportData.getTimer().time(Phase.EXISTING_USER_LOOKUP,
+            () -> listUsers(okapiHeaders, currentPartition, userImportData.getSourceType()))
+        .onSuccess(res -> lookupLatencyListener.accept(System.currentTimeMillis() - lookupStart))
         .compose(res -> {
           try {
             Map<String, User> existingUsers = udpService.extractExistingUsers(res);
@@ -271,32 +958,39 @@ public class UserImportAPI implements UserImport {
             return processUserSearchResult(okapiHeaders, existingUsers, currentPartition, userImportData)
                 .recover(e -> {
                   LOGGER.error(FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
-                  UserdataimportCollection userCollection = new UserdataimportCollection();
-                  userCollection.setTotalRecords(currentPartition.size());
-                  userCollection.setUsers(currentPartition);
-                  ImportResponse userSearchFailureResponse = processErrorResponse(userImportData.getUsers(),
+                  ImportResponse userSearchFailureResponse = processErrorResponse(currentPartition,
                       FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
                   return Future.succeededFuture(userSearchFailureResponse);
                 });
           } catch (UserMappingFailedException exc) {
-            UserdataimportCollection userCollection = new UserdataimportCollection();
-            userCollection.setTotalRecords(currentPartition.size());
-            userCollection.setUsers(currentPartition);
             ImportResponse userMappingFailureResponse =
-                processErrorResponse(userImportData.getUsers(), FAILED_TO_PROCESS_USER_SEARCH_RESULT + USER_SCHEMA_MISMATCH);
+                processErrorResponse(currentPartition, FAILED_TO_PROCESS_USER_SEARCH_RESULT + USER_SCHEMA_MISMATCH);
             return Future.succeededFuture(userMappingFailureResponse);
           }})
         .recover(e -> {
           LOGGER.error(FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
-          UserdataimportCollection userCollection = new UserdataimportCollection();
-          userCollection.setTotalRecords(currentPartition.size());
-          userCollection.setUsers(currentPartition);
-          ImportResponse userSearchFailureResponse = processErrorResponse(userImportData.getUsers(),
+          ImportResponse userSearchFailureResponse = processErrorResponse(currentPartition,
               FAILED_TO_PROCESS_USER_SEARCH_RESULT + extractErrorMessage(e));
           return Future.succeededFuture(userSearchFailureResponse);
         });
   }
 
+  /**
+   * Run the work on the users once no other import of this instance works on users with
+   * the same externalSystemIds.
+   */
+  private <T> Future<T> withExternalSystemIdLocks(List<User> users, UserImportData userImportData,
+      Map<String, String> okapiHeaders, Supplier<Future<T>> work) {
+
+    String prefix = TenantTool.tenantId(okapiHeaders) + ":" + getExternalSystemIdPrefix(userImportData);
+    List<String> keys = users.stream()
+        .map(User::getExternalSystemId)
+        .filter(Objects::nonNull)
+        .map(externalSystemId -> prefix + externalSystemId)
+        .collect(Collectors.toList());
+    return ExternalSystemIdLocks.withLocks(keys, work);
+  }
+
   /**
    * List a batch of users.
    */
@@ -325,23 +1019,117 @@ public class UserImportAPI implements UserImport {
 
   /**
    * Process batch of users. Decide if current user exists, if it does, updates
-   * it, otherwise creates a new one.
+   * it, otherwise creates a new one. Users imported before a restart are skipped.
    */
   private Future<ImportResponse> processUserSearchResult(Map<String, String> okapiHeaders,
-      Map<String, User> existingUsers, List<User> usersToImport, UserImportData userImportData) {
-
-    List<Future<SingleUserImportResponse>> futures = usersToImport.stream()
-      .map(user -> processUser(user, userImportData, existingUsers, okapiHeaders))
-      .collect(Collectors.toList());
+      Map<String, User> existingUsers, List<User> partition, UserImportData userImportData) {
+
+    ImportCheckpoint checkpoint = userImportData.getCheckpoint();
+    List<User> usersToImport = checkpoint.withoutCommitted(partition);
+    // the externalSystemIds as sent, processing the users adds the source type
+    List<String> externalSystemIds = usersToImport.stream()
+        .map(User::getExternalSystemId)
+        .collect(Collectors.toList());
+    return reloadMissingReferenceData(usersToImport, userImportData, okapiHeaders)
+        .compose(v -> userImportData.getTimer().time(Phase.PREFERENCE_PROCESSING,
+            () -> fetchExistingPreferences(existingUsers, usersToImport, userImportData, okapiHeaders)))
+        .compose(existingPreferences -> {
+          PartitionScheduler<User, SingleUserImportResponse> userScheduler = new PartitionScheduler<>(
+              ConfigUtil.getInt(USER_CONCURRENCY_SETTING, DEFAULT_USER_CONCURRENCY),
+              user -> processUser(user, userImportData, existingUsers, existingPreferences, okapiHeaders));
+          List<Future<SingleUserImportResponse>> futures = userScheduler.submitAll(usersToImport);
 
-    return GenericCompositeFuture.all(futures)
-        .onSuccess(x -> LOGGER.info("User creation and update has finished for the current batch."))
-        .map(x -> processSuccessfulImportResponse(futures))
+          return GenericCompositeFuture.all(futures)
+              .onSuccess(x -> LOGGER.info("User creation and update has finished for the current batch."))
+              .map(x -> processSuccessfulImportResponse(futures))
+              .compose(response -> checkpointService.save(okapiHeaders, checkpoint,
+                  getImportedExternalSystemIds(externalSystemIds, futures), response).map(response));
+        })
+        .onSuccess(response -> ImportMetrics.recordUsers(TenantTool.tenantId(okapiHeaders), response))
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_IMPORT_USERS));
   }
 
+  /**
+   * Fetch the request preferences of the users of the partition that will be updated,
+   * with as few requests as the query length allows. Users whose preference is neither
+   * updated nor deleted are skipped. If the lookup fails the users of the partition fail.
+   */
+  private Future<Map<String, RequestPreference>> fetchExistingPreferences(Map<String, User> existingUsers,
+      List<User> usersToImport, UserImportData userImportData, Map<String, String> okapiHeaders) {
+
+    String prefix = getExternalSystemIdPrefix(userImportData);
+    List<String> userIds = usersToImport.stream()
+        .filter(user -> !userImportData.isUpdateOnlyPresentFields()
+            || userImportData.getRequestPreferences().containsKey(user.getUsername()))
+        .map(user -> existingUsers.get(prefix + user.getExternalSystemId()))
+        .filter(Objects::nonNull)
+        .map(User::getId)
+        .distinct()
+        .collect(Collectors.toList());
+    return prefService.getByUserIds(okapiHeaders, userIds,
+        ConfigUtil.getInt(LOOKUP_MAX_QUERY_LENGTH_SETTING, DEFAULT_LOOKUP_MAX_QUERY_LENGTH));
+  }
+
+  /**
+   * Reload cached patron groups, address types or service points when users of the
+   * partition refer to ones that are not known, they may have been added since they
+   * were cached. Every kind is reloaded at most once per import.
+   */
+  private Future<Void> reloadMissingReferenceData(List<User> users, UserImportData userImportData,
+      Map<String, String> okapiHeaders) {
+
+    UserSystemData systemData = userImportData.getSystemData();
+    List<RequestPreference> preferences = users.stream()
+        .map(user -> userImportData.getRequestPreferences().get(user.getUsername()))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+    List<Future<Void>> reloads = new ArrayList<>();
+
+    boolean patronGroupMissing = users.stream()
+        .map(User::getPatronGroup)
+        .anyMatch(name -> name != null && !systemData.getPatronGroups().containsKey(name));
+    if (patronGroupMissing) {
+      reloads.add(systemData.reloadOnce("patronGroups", () -> pgService.refreshPatronGroups(okapiHeaders)
+          .onSuccess(systemData::setPatronGroups)
+          .<Void>mapEmpty()));
+    }
+
+    Predicate<String> unknownAddressType = name -> name != null && !systemData.getAddressTypes().containsKey(name);
+    boolean addressTypeMissing = users.stream()
+        .filter(user -> user.getPersonal() != null && user.getPersonal().getAddresses() != null)
+        .flatMap(user -> user.getPersonal().getAddresses().stream())
+        .map(Address::getAddressTypeId)
+        .anyMatch(unknownAddressType)
+        || preferences.stream()
+        .map(RequestPreference::getDefaultDeliveryAddressTypeId)
+        .anyMatch(unknownAddressType);
+    if (addressTypeMissing) {
+      reloads.add(systemData.reloadOnce("addressTypes", () -> addressService.refreshAddressTypes(okapiHeaders)
+          .onSuccess(systemData::setAddressTypes)
+          .<Void>mapEmpty()));
+    }
+
+    boolean servicePointMissing = preferences.stream()
+        .map(RequestPreference::getDefaultServicePointId)
+        .anyMatch(id -> id != null && !systemData.getServicePoints().containsValue(id));
+    if (servicePointMissing) {
+      reloads.add(systemData.reloadOnce("servicePoints", () -> spService.refreshServicePoints(okapiHeaders)
+          .onSuccess(systemData::setServicePoints)
+          .<Void>mapEmpty()));
+    }
+
+    // a failed reload leaves the cached data in place, the affected users fail as before
+    return GenericCompositeFuture.join(reloads)
+        .<Void>mapEmpty()
+        .otherwise(e -> {
+          LOGGER.warn("Failed to reload reference data: {}", e.getMessage());
+          return null;
+        });
+  }
+
   private Future<SingleUserImportResponse> processUser(User user, UserImportData userImportData,
-      Map<String, User> existingUsers, Map<String, String> okapiHeaders) {
+      Map<String, User> existingUsers, Map<String, RequestPreference> existingPreferences,
+      Map<String, String> okapiHeaders) {
 
     try {
       udpService.updateUserData(user, userImportData);
@@ -356,28 +1144,66 @@ public class UserImportAPI implements UserImport {
       } else {
         user.setId(existingUsers.get(user.getExternalSystemId()).getId());
       }
-      existingUsers.remove(user.getExternalSystemId());
+      User existingUser = existingUsers.remove(user.getExternalSystemId());
       User finalUser = user;
-      return updateUser(okapiHeaders, user)
-        .compose(singleUserImportResponse -> updateUserPreference(finalUser, userImportData, okapiHeaders)
+      ImportTimer timer = userImportData.getTimer();
+      Future<SingleUserImportResponse> userUpdate = udpService.isUnchanged(user, existingUser)
+        ? Future.succeededFuture(SingleUserImportResponse.unchanged(user.getExternalSystemId()))
+        : timer.time(Phase.USER_WRITES, () -> updateUser(okapiHeaders, finalUser))
+          .otherwise(e -> SingleUserImportResponse.failed(finalUser.getExternalSystemId(), finalUser.getUsername(),
+              500, e.getMessage()));
+      // the user id is known, so the preference is written alongside the user
+      Future<RequestPreference> preferenceUpdate = timer.time(Phase.PREFERENCE_PROCESSING,
+          () -> updateUserPreference(finalUser, existingPreferences.get(existingUser.getId()), userImportData,
+              okapiHeaders));
+      // a failed user update is reported even if the preference was written
+      return userUpdate
+        .compose(singleUserImportResponse -> preferenceUpdate
           .map(o -> singleUserImportResponse)
-          .otherwise(e -> getFailedUserResponse(finalUser, e))
+          .otherwise(e -> singleUserImportResponse.getStatus() == UserRecordImportStatus.FAILED
+            ? singleUserImportResponse
+            : getFailedUserResponse(finalUser, e))
         );
     } else {
       User finalUser = user;
-      return createNewUser(okapiHeaders, user)
-        .compose(singleUserImportResponse -> createUserPreference(finalUser, userImportData, okapiHeaders)
+      ImportTimer timer = userImportData.getTimer();
+      return createNewUser(okapiHeaders, user, timer)
+        .compose(singleUserImportResponse -> timer.time(Phase.PREFERENCE_PROCESSING,
+            () -> createUserPreference(finalUser, userImportData, okapiHeaders))
           .map(o -> singleUserImportResponse)
           .otherwise(e -> getFailedUserResponse(finalUser, e))
         );
     }
   }
 
+  private FailedUser getFailedUser(User user, String errorMessage) {
+    return new FailedUser()
+        .withExternalSystemId(user.getExternalSystemId())
+        .withUsername(user.getUsername())
+        .withErrorMessage(errorMessage);
+  }
+
   private SingleUserImportResponse getFailedUserResponse(User finalUser, Throwable e) {
     return SingleUserImportResponse
       .failed(finalUser.getExternalSystemId(), finalUser.getUsername(), -1, e.getMessage());
   }
 
+  /**
+   * @return the externalSystemIds of the users that did not fail, the responses are in
+   * the order of the users
+   */
+  private List<String> getImportedExternalSystemIds(List<String> externalSystemIds,
+      List<Future<SingleUserImportResponse>> futures) {
+
+    List<String> imported = new ArrayList<>();
+    for (int i = 0; i < futures.size(); i++) {
+      if (futures.get(i).result().getStatus() != UserRecordImportStatus.FAILED) {
+        imported.add(externalSystemIds.get(i));
+      }
+    }
+    return imported;
+  }
+
   /**
    * Aggregate SingleUserImportResponses to an ImportResponse.
    */
@@ -385,6 +1211,7 @@ public class UserImportAPI implements UserImport {
     List<FailedUser> failedUsers = new ArrayList<>();
     int created = 0;
     int updated = 0;
+    int unchanged = 0;
     int failed = 0;
     for (Future<SingleUserImportResponse> currentFuture : futures) {
       SingleUserImportResponse resp = currentFuture.result();
@@ -392,6 +1219,8 @@ public class UserImportAPI implements UserImport {
         created++;
       } else if (resp.getStatus() == UserRecordImportStatus.UPDATED) {
         updated++;
+      } else if (resp.getStatus() == UserRecordImportStatus.UNCHANGED) {
+        unchanged++;
       } else {
         failed++;
         failedUsers.add(new FailedUser().withExternalSystemId(resp.getExternalSystemId()).withUsername(resp.getUsername())
@@ -400,9 +1229,10 @@ public class UserImportAPI implements UserImport {
     }
     return new ImportResponse()
       .withMessage("")
-      .withTotalRecords(created + updated + failed)
+      .withTotalRecords(created + updated + unchanged + failed)
       .withCreatedRecords(created)
       .withUpdatedRecords(updated)
+      .withUnchangedRecords(unchanged)
       .withFailedRecords(failed)
       .withFailedUsers(failedUsers);
   }
@@ -426,7 +1256,8 @@ public class UserImportAPI implements UserImport {
   /**
    * Create a new user.
    */
-  private Future<SingleUserImportResponse> createNewUser(Map<String, String> okapiHeaders, User user) {
+  private Future<SingleUserImportResponse> createNewUser(Map<String, String> okapiHeaders, User user,
+      ImportTimer timer) {
 
     if (user.getId() == null) {
       user.setId(UUID.randomUUID().toString());
@@ -436,12 +1267,13 @@ public class UserImportAPI implements UserImport {
 
     // create permission before user object to avoid user without permission
     // a dangling permission user object does not hurt.
-    return addEmptyPermissionSetForUser(okapiHeaders, user)
-        .compose(x ->
+    return timer.time(Phase.PERMISSION_CREATION, () -> addEmptyPermissionSetForUser(okapiHeaders, user))
+        .compose(x -> timer.time(Phase.USER_WRITES, () ->
           HttpClientUtil.getRequestOkapi(HttpMethod.POST, okapiHeaders, userCreationQuery)
+            .idempotent() // the id is set above, a retry can't create a second user
             .expect(ResponsePredicate.SC_CREATED)
             .sendJsonObject(JsonObject.mapFrom(user))
-            .map(res -> SingleUserImportResponse.created(user.getExternalSystemId())))
+            .map(res -> SingleUserImportResponse.created(user.getExternalSystemId()))))
         .onFailure(e -> LOGGER.error(() -> "create new user: " + e.getMessage(), e))
         .otherwise(e -> SingleUserImportResponse.failed(user.getExternalSystemId(), user.getUsername(),
             500, FAILED_TO_CREATE_NEW_USER_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId()));
@@ -462,30 +1294,29 @@ public class UserImportAPI implements UserImport {
         });
   }
 
-  private Future<RequestPreference> updateUserPreference(User user, UserImportData userImportData,
-      Map<String, String> okapiHeaders) {
+  private Future<RequestPreference> updateUserPreference(User user, RequestPreference result,
+      UserImportData userImportData, Map<String, String> okapiHeaders) {
 
-    return prefService.get(okapiHeaders, user.getId())
-        .compose(result -> {
-          if (Objects.nonNull(result)) {
-            RequestPreference requestPreference = userImportData.getRequestPreferences().get(user.getUsername());
-            if (Objects.nonNull(requestPreference)) {
-              requestPreference.setId(result.getId());
-              requestPreference.setUserId(result.getUserId());
-              return prefService.validate(requestPreference, userImportData, user)
-                  .compose(o -> {
-                    udpService.updateUserPreference(requestPreference, userImportData);
-                    return prefService.update(okapiHeaders, requestPreference).mapEmpty();
-                  });
-            } else if (!userImportData.isUpdateOnlyPresentFields()) {
-              return prefService.delete(okapiHeaders, result.getId()).mapEmpty();
-            } else {
+    if (Objects.isNull(result)) {
+      return createUserPreference(user, userImportData, okapiHeaders);
+    }
+    RequestPreference requestPreference = userImportData.getRequestPreferences().get(user.getUsername());
+    if (Objects.nonNull(requestPreference)) {
+      requestPreference.setId(result.getId());
+      requestPreference.setUserId(result.getUserId());
+      return prefService.validate(requestPreference, userImportData, user)
+          .compose(o -> {
+            udpService.updateUserPreference(requestPreference, userImportData);
+            if (udpService.isUnchanged(requestPreference, result)) {
               return Future.succeededFuture();
             }
-          } else {
-            return createUserPreference(user, userImportData,  okapiHeaders);
-          }
-        });
+            return prefService.update(okapiHeaders, requestPreference).mapEmpty();
+          });
+    } else if (!userImportData.isUpdateOnlyPresentFields()) {
+      return prefService.delete(okapiHeaders, result.getId()).mapEmpty();
+    } else {
+      return Future.succeededFuture();
+    }
   }
 
   private Future<JsonObject> addEmptyPermissionSetForUser(Map<String, String> okapiHeaders,
@@ -507,77 +1338,21 @@ public class UserImportAPI implements UserImport {
   }
 
   /**
-   * List all users (in a sourceType if given).
-   */
-  private Future<List<Map>> listAllUsersWithExternalSystemId(Map<String, String> okapiHeaders, String sourceType) {
-    StringBuilder queryBuilder = new StringBuilder("externalSystemId");
-    if (!Strings.isNullOrEmpty(sourceType)) {
-      queryBuilder.append("=^").append(sourceType).append("_*");
-    } else {
-      queryBuilder.append("<>''");
-    }
-
-    final String query = queryBuilder.toString();
-    int limit = 10;
-    final String userSearchQuery = generateUserSearchQuery(query, limit, 0);
-    return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userSearchQuery)
-        .expect(ResponsePredicate.SC_OK)
-        .send()
-        .compose(res -> listAllUsers(res.bodyAsJsonObject(), okapiHeaders, query, limit))
-        .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_PROCESS_USER_SEARCH_RESULT));
-  }
-
-  /**
-   * List all users.
+   * Create the reader for all users (in a sourceType if given).
    */
-  private Future<List<Map>> listAllUsers(JsonObject resultObject,
-      Map<String, String> okapiHeaders, String query, int limit) {
-
-    List<Map> users = getUsersFromResult(resultObject);
-    List<Map> existingUserList = new ArrayList<>(users);
-    int totalRecords = resultObject.getInteger("totalRecords");
-    if (totalRecords <= limit) {
-      return Future.succeededFuture(existingUserList);
-    }
-    int numberOfPages = totalRecords / limit;
-    if (totalRecords % limit != 0) {
-      numberOfPages++;
-    }
-    List<Future<Void>> futures = new ArrayList<>();
-    for (int offset = 1; offset < numberOfPages; offset++) {
-      futures.add(processResponse(existingUserList, okapiHeaders, query, limit, offset * limit));
-    }
-    return GenericCompositeFuture.all(futures)
-        .map(x -> existingUserList)
-        .recover(e -> Future.failedFuture(FAILED_TO_PROCESS_USERS + extractErrorMessage(e)));
-  }
-
-
-  /**
-     * Process user search response.
-     */
-  private Future<Void> processResponse(List<Map> existingUserList, Map<String, String> okapiHeaders,
-      String query, int limit, int offset) {
-
-    final String userSearchQuery = generateUserSearchQuery(query, limit, offset);
-    return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userSearchQuery)
-        .expect(ResponsePredicate.SC_OK)
-        .send()
-        .<Void>map(
-            res -> {
-              List<Map> users = getUsersFromResult(res.bodyAsJsonObject());
-              existingUserList.addAll(users);
-              return null;
-              })
-        .recover(e -> HttpClientUtil.errorManagement(e,FAILED_TO_PROCESS_USER_SEARCH_RESPONSE));
+  private ExistingUserReader createExistingUserReader(Map<String, String> okapiHeaders, String sourceType) {
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    return new ExistingUserReader(okapiHeaders, sourceType,
+        ConfigUtil.getInt(DEACTIVATION_PAGE_SIZE_SETTING, tenantId, DEFAULT_DEACTIVATION_PAGE_SIZE),
+        ConfigUtil.getInt(DEACTIVATION_PREFETCH_PAGES_SETTING, DEFAULT_DEACTIVATION_PREFETCH_PAGES));
   }
 
   /**
    * Deactivate users
    *
    * @param okapiHeaders    the Okapi headers
-   * @param existingUserMap the existing users that were not updated in the
-   *                        request
+   * @param existingUserMap the active existing users that were not updated in
+   *                        the request
    * @return a completed future if users were deactivated a failed future if not
    * all users could be deactivated
    */
@@ -637,26 +1412,28 @@ public class UserImportAPI implements UserImport {
   /**
    * Create import response from sub-responses.
    *
-   * @param futures the ImportResponse list with the successful/failed user
-   *                creation/update
+   * @param responses the ImportResponse list with the successful/failed user
+   *                  creation/update
    * @return the aggregated ImportResponse
    */
-  private ImportResponse processFutureResponses(List<Future<ImportResponse>> futures) {
+  private ImportResponse processFutureResponses(List<ImportResponse> responses) {
     int created = 0;
     int updated = 0;
+    int unchanged = 0;
     int failed = 0;
     int totalRecords = 0;
     List<FailedUser> failedUsers = new ArrayList<>();
-    for (Future<ImportResponse> currentFuture : futures) {
-      ImportResponse currentResponse = currentFuture.result();
+    for (ImportResponse currentResponse : responses) {
       created += currentResponse.getCreatedRecords();
       updated += currentResponse.getUpdatedRecords();
+      unchanged += currentResponse.getUnchangedRecords();
       failed += currentResponse.getFailedRecords();
       totalRecords += currentResponse.getTotalRecords();
       failedUsers.addAll(currentResponse.getFailedUsers());
     }
     return new ImportResponse().withCreatedRecords(created)
         .withUpdatedRecords(updated)
+        .withUnchangedRecords(unchanged)
         .withFailedRecords(failed)
         .withTotalRecords(totalRecords)
         .withFailedUsers(failedUsers);
@@ -672,11 +1449,7 @@ public class UserImportAPI implements UserImport {
   private ImportResponse processErrorResponse(List<User> userCollection, String errorMessage) {
     List<FailedUser> failedUsers = new ArrayList<>();
     for (User user : userCollection) {
-      FailedUser failedUser = new FailedUser()
-        .withExternalSystemId(user.getExternalSystemId())
-        .withUsername(user.getUsername())
-        .withErrorMessage(errorMessage);
-      failedUsers.add(failedUser);
+      failedUsers.add(getFailedUser(user, errorMessage));
     }
     return new ImportResponse()
       .withMessage(FAILED_TO_IMPORT_USERS)
@@ -684,6 +1457,7 @@ public class UserImportAPI implements UserImport {
       .withTotalRecords(userCollection.size())
       .withCreatedRecords(0)
       .withUpdatedRecords(0)
+      .withUnchangedRecords(0)
       .withFailedRecords(userCollection.size())
       .withFailedUsers(failedUsers);
   }
@@ -19,13 +19,22 @@ public class UserImportAPIConstants {
   public static final String FAILED_TO_CREATE_USER_PREFERENCE = "Failed to create new user preference.";
   public static final String FAILED_TO_UPDATE_USER_PREFERENCE = "Failed to update user preference.";
   public static final String FAILED_TO_DELETE_USER_PREFERENCE = "Failed to delete user preference.";
+  public static final String FAILED_TO_GET_USER_PREFERENCES = "Failed to get user preferences.";
   public static final String FAILED_TO_UPDATE_CUSTOM_FIELD = "Failed to update custom field.";
   public static final String FAILED_USER_PREFERENCE_VALIDATION = "User Preference validation failed: ";
   public static final String FAILED_TO_GET_USER_MODULE_ID = "Interface 'users' must be provided only by one module";
   public static final String ERROR_MESSAGE = " Error message: ";
   public static final String USERS_WERE_IMPORTED_SUCCESSFULLY = "Users were imported successfully.";
   public static final String USER_DEACTIVATION_SKIPPED = "Users were not deactivated because of import failures.";
+  public static final String INVALID_STREAM_HEADER = "The first line must hold the import options: ";
+  public static final String INVALID_USER_RECORD = "Invalid user record: ";
+  public static final String STREAM_DEACTIVATION_NOT_SUPPORTED =
+    "deactivateMissingUsers is not supported for streamed imports.";
   public static final String USER_SCHEMA_MISMATCH = "Failed to map existing users. This could be caused by schema mismatch.";
+  public static final String DUPLICATE_EXTERNAL_SYSTEM_ID = "The import holds more than one user with externalSystemId: ";
+  public static final String IDEMPOTENCY_KEY_REUSED = "The Idempotency-Key was used before for a different import: ";
+  public static final String PARTITION_ABANDONED =
+    " The partition was claimed too often by module instances that did not finish it.";
 
   public static final String CUSTOM_FIELDS_ENDPOINT = "/custom-fields";
   public static final String LIMIT_ALL = "?limit=" + Integer.MAX_VALUE;
@@ -13,13 +13,27 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
 import org.folio.util.HttpClientUtil;
 import org.folio.util.JsonObjectUtil;
+import org.folio.util.ReferenceDataCache;
 
 public class AddressTypeService {
 
   private static final String ADDRESS_TYPES_ARRAY_KEY = "addressTypes";
   private static final String ADDRESS_TYPE_NAME_OBJECT_KEY = "addressType";
 
+  private final ReferenceDataCache cache = new ReferenceDataCache("addressTypes");
+
   public Future<Map<String, String>> getAddressTypes(Map<String, String> okapiHeaders) {
+    return cache.get(okapiHeaders, this::loadAddressTypes);
+  }
+
+  /**
+   * Load the address types bypassing the cache.
+   */
+  public Future<Map<String, String>> refreshAddressTypes(Map<String, String> okapiHeaders) {
+    return cache.refresh(okapiHeaders, this::loadAddressTypes);
+  }
+
+  private Future<Map<String, String>> loadAddressTypes(Map<String, String> okapiHeaders) {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, ADDRESS_TYPES_ENDPOINT + LIMIT_ALL)
         .expect(ResponsePredicate.SC_OK)
         .send()
@@ -8,8 +8,10 @@ import static org.folio.rest.impl.UserImportAPIConstants.LIMIT_ALL;
 import static org.folio.rest.impl.UserImportAPIConstants.CUSTOM_FIELDS_INTERFACE_NAME;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -20,7 +22,6 @@ import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
-import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -32,39 +33,56 @@ import org.folio.rest.jaxrs.model.CheckboxField;
 import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.SelectFieldOption;
 import org.folio.rest.jaxrs.model.SelectFieldOptions;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.util.CustomFieldsCache;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.ImportMetrics;
+import org.folio.util.OkapiHeaders;
 import org.folio.util.OkapiUtil;
 
 public class CustomFieldsService {
 
+  private final CustomFieldsCache cache = new CustomFieldsCache();
+
+  /**
+   * Get the custom field definitions of the tenant and apply the definition updates of the
+   * import. Cached definitions are used unless the import updates definitions or refers to
+   * ones that are not cached.
+   */
   public Future<Set<CustomField>> prepareCustomFields(UserImportData importData, Map<String, String> okapiHeaders) {
-    Map<String, String> headers = new CaseInsensitiveMap<>(okapiHeaders);
-
-    return OkapiUtil.getModulesProvidingInterface(CUSTOM_FIELDS_INTERFACE_NAME, headers)
-      .compose(moduleIds -> updateHeaders(moduleIds, headers))
-      .compose(o -> getCustomFields(headers))
-      .compose(systemCustomFields -> {
-        Set<CustomField> importCustomFields = importData.getCustomFields();
-        if (importCustomFields.isEmpty()) {
-          return Future.succeededFuture(systemCustomFields);
-        }
-        return updateCustomFields(importCustomFields, systemCustomFields, headers);
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    CustomFieldsCache.Entry cached = cache.get(tenantId);
+    Set<CustomField> importCustomFields = importData.getCustomFields();
+
+    if (importCustomFields.isEmpty()) {
+      if (cached != null && containsAll(cached.getCustomFields(), getReferencedRefIds(importData))) {
+        return Future.succeededFuture(cached.getCustomFields());
+      }
+      return loadCustomFields(okapiHeaders, cached == null ? null : cached.getModuleId())
+        .map(CustomFieldsCache.Entry::getCustomFields)
+        .recover(e -> HttpClientUtil.errorManagement(e, "Failed to prepare custom fields"));
+    }
+
+    // the cached definitions are shared, updates are applied to freshly loaded ones
+    return getModuleId(okapiHeaders, cached)
+      .compose(moduleId -> {
+        Map<String, String> headers = withModuleId(okapiHeaders, moduleId);
+        return getCustomFields(headers)
+          .compose(systemCustomFields -> updateCustomFields(importCustomFields, systemCustomFields, headers));
       })
+      .onComplete(ar -> cache.invalidate(tenantId))
       .recover(e -> HttpClientUtil.errorManagement(e, "Failed to prepare custom fields"));
   }
 
-  public Optional<CustomField> findCustomFieldByRefId(Set<CustomField> customFields, String refId) {
-    return customFields.stream()
-        .filter(customField -> customField.getRefId().equals(refId))
-        .findAny();
-  }
-
   private Future<Set<CustomField>> updateCustomFields(Set<CustomField> importCustomFields,
       Set<CustomField> systemCustomFields, Map<String, String> okapiHeaders) {
 
+    Map<String, CustomField> customFieldsByRefId = new HashMap<>();
+    systemCustomFields.forEach(customField -> customFieldsByRefId.putIfAbsent(customField.getRefId(), customField));
     List<Future<Void>> futures = new ArrayList<>();
     for (CustomField importCustomField : importCustomFields) {
-      CustomField systemCustomField = findCustomFieldByRefId(systemCustomFields, importCustomField.getRefId())
+      CustomField systemCustomField = Optional.ofNullable(customFieldsByRefId.get(importCustomField.getRefId()))
           .orElseThrow(() -> new CustomFieldMappingFailedException(Set.of(importCustomField.getRefId())));
 
       updateValues(systemCustomField, importCustomField);
@@ -149,13 +167,64 @@ public class CustomFieldsService {
     return ObjectUtils.defaultIfNull(extractFunc.apply(o1), extractFunc.apply(o2));
   }
 
-  private Future<Void> updateHeaders(List<String> moduleIds, Map<String, String> headers) {
-    if (moduleIds.size() != 1) {
-      return Future.failedFuture(FAILED_TO_GET_USER_MODULE_ID);
-    } else {
-      headers.put(XOkapiHeaders.MODULE_ID, moduleIds.get(0));
-      return Future.succeededFuture();
+  private Map<String, String> withModuleId(Map<String, String> okapiHeaders, String moduleId) {
+    return OkapiHeaders.of(okapiHeaders).with(XOkapiHeaders.MODULE_ID, moduleId);
+  }
+
+  /**
+   * Load the definitions and cache them. A cached module id is tried first, if the request
+   * fails the module may have changed and its id is looked up again.
+   */
+  private Future<CustomFieldsCache.Entry> loadCustomFields(Map<String, String> okapiHeaders, String cachedModuleId) {
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    if (cachedModuleId != null) {
+      return loadCustomFields(okapiHeaders, Future.succeededFuture(cachedModuleId))
+        .recover(e -> {
+          cache.invalidate(tenantId);
+          return loadCustomFields(okapiHeaders, lookupModuleId(okapiHeaders));
+        });
     }
+    return loadCustomFields(okapiHeaders, lookupModuleId(okapiHeaders));
+  }
+
+  private Future<CustomFieldsCache.Entry> loadCustomFields(Map<String, String> okapiHeaders,
+      Future<String> moduleIdFuture) {
+
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    long start = System.nanoTime();
+    return moduleIdFuture
+      .compose(moduleId -> getCustomFields(withModuleId(okapiHeaders, moduleId))
+        .map(customFields -> cache.put(tenantId, moduleId, customFields)))
+      .onSuccess(entry -> ImportMetrics.recordReferenceDataLoad(tenantId, "customFields", System.nanoTime() - start));
+  }
+
+  private Future<String> getModuleId(Map<String, String> okapiHeaders, CustomFieldsCache.Entry cached) {
+    return cached != null ? Future.succeededFuture(cached.getModuleId()) : lookupModuleId(okapiHeaders);
+  }
+
+  private Future<String> lookupModuleId(Map<String, String> okapiHeaders) {
+    return OkapiUtil.getModulesProvidingInterface(CUSTOM_FIELDS_INTERFACE_NAME, okapiHeaders)
+      .compose(moduleIds -> {
+        if (moduleIds.size() != 1) {
+          return Future.failedFuture(FAILED_TO_GET_USER_MODULE_ID);
+        }
+        return Future.succeededFuture(moduleIds.get(0));
+      });
+  }
+
+  private Set<String> getReferencedRefIds(UserImportData importData) {
+    return importData.getUsers().stream()
+      .map(User::getCustomFields)
+      .filter(Objects::nonNull)
+      .flatMap(customFields -> customFields.getAdditionalProperties().keySet().stream())
+      .collect(Collectors.toSet());
+  }
+
+  private boolean containsAll(Set<CustomField> customFields, Set<String> refIds) {
+    Set<String> knownRefIds = customFields.stream()
+      .map(CustomField::getRefId)
+      .collect(Collectors.toSet());
+    return knownRefIds.containsAll(refIds);
   }
 
   private Future<Set<CustomField>> getCustomFields(Map<String, String> headers) {
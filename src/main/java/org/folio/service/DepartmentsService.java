@@ -7,10 +7,11 @@ import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_LIST_DEPARTME
 import static org.folio.rest.impl.UserImportAPIConstants.LIMIT_ALL;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import io.vertx.core.Future;
@@ -23,7 +24,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.folio.model.UserImportData;
 import org.folio.okapi.common.GenericCompositeFuture;
 import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.tools.utils.TenantTool;
 import org.folio.util.HttpClientUtil;
+import org.folio.util.ImportMetrics;
 
 public class DepartmentsService {
 
@@ -32,7 +35,10 @@ public class DepartmentsService {
   private static final String FAILED_TO_UPDATE_DEPARTMENT_MESSAGE = "Failed to update department";
 
   public Future<Set<Department>> prepareDepartments(UserImportData importData, Map<String, String> okapiHeaders) {
+    long start = System.nanoTime();
     return getDepartments(okapiHeaders)
+      .onSuccess(departments -> ImportMetrics.recordReferenceDataLoad(TenantTool.tenantId(okapiHeaders),
+          "departments", System.nanoTime() - start))
       .compose(systemDepartments -> {
         Set<Department> importDepartments = importData.getDepartments();
         if (!importDepartments.isEmpty()) {
@@ -44,31 +50,21 @@ public class DepartmentsService {
       .recover(e -> HttpClientUtil.errorManagement(e, "Failed to prepare departments"));
   }
 
-  public Optional<Department> findDepartmentByName(Set<Department> departments, String name) {
-    return departments.stream()
-        .filter(department -> department.getName().equals(name))
-        .findFirst();
-  }
-
-  public Optional<Department> findDepartmentByCode(Set<Department> departments, String code) {
-    return departments.stream()
-        .filter(department -> department.getCode().equals(code))
-        .findFirst();
-  }
-
   private Future<Set<Department>> updateSystemDepartments(Set<Department> importDepartments,
       Set<Department> systemDepartments, Map<String, String> okapiHeaders) {
 
+    Map<String, Department> departmentsByName = index(systemDepartments, Department::getName);
+    Map<String, Department> departmentsByCode = index(systemDepartments, Department::getCode);
     List<Future<Void>> futures = new ArrayList<>();
     for (Department importDepartment : importDepartments) {
-      Optional<Department> existedDepartmentByName = findDepartmentByName(systemDepartments, importDepartment.getName());
-      if (existedDepartmentByName.isEmpty()) {
-        Optional<Department> existedDepartmentByCode =
-          findDepartmentByCode(systemDepartments, importDepartment.getCode());
-        if (existedDepartmentByCode.isPresent()) {
-          Department systemDepartment = existedDepartmentByCode.get();
+      if (!departmentsByName.containsKey(importDepartment.getName())) {
+        Department systemDepartment = departmentsByCode.get(importDepartment.getCode());
+        if (systemDepartment != null) {
           futures.add(updateDepartment(systemDepartment, importDepartment, okapiHeaders));
+          // the old name is free after the rename, a department imported with it is created
+          departmentsByName.remove(systemDepartment.getName(), systemDepartment);
           systemDepartment.setName(importDepartment.getName());
+          departmentsByName.put(systemDepartment.getName(), systemDepartment);
         } else {
           futures.add(createDepartment(importDepartment, okapiHeaders)
             .onSuccess(systemDepartments::add)
@@ -79,6 +75,16 @@ public class DepartmentsService {
     return GenericCompositeFuture.all(futures).map(o -> systemDepartments);
   }
 
+  private Map<String, Department> index(Set<Department> departments, Function<Department, String> key) {
+    Map<String, Department> index = new HashMap<>();
+    for (Department department : departments) {
+      if (key.apply(department) != null) {
+        index.putIfAbsent(key.apply(department), department);
+      }
+    }
+    return index;
+  }
+
   private Future<Set<Department>> getDepartments(Map<String, String> okapiHeaders) {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, DEPARTMENTS_ENDPOINT + LIMIT_ALL)
         .expect(ResponsePredicate.SC_OK)
@@ -0,0 +1,174 @@
+package org.folio.service;
+
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_PROCESS_USER_SEARCH_RESPONSE;
+import static org.folio.rest.impl.UserImportAPIConstants.USERS_ENDPOINT;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+import javax.ws.rs.core.UriBuilder;
+
+import com.google.common.base.Strings;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.util.HttpClientUtil;
+
+/**
+ * Reads all users with an externalSystemId (in a sourceType if given) page by page. Pages are
+ * requested with a cursor on the externalSystemId ordering instead of an offset, so users
+ * changed during the read are neither skipped nor read twice. While a page is handled at most
+ * {@code prefetchPages} further pages are fetched.
+ *
+ * <p>Not thread safe, must be used on the Vert.x context of the import.
+ */
+public class ExistingUserReader {
+
+  private static final Logger LOGGER = LogManager.getLogger(ExistingUserReader.class);
+  private static final String EXTERNAL_SYSTEM_ID = "externalSystemId";
+
+  private final Map<String, String> okapiHeaders;
+  private final String baseQuery;
+  private final int pageSize;
+  private final int prefetchPages;
+
+  private final Deque<List<Map>> fetchedPages = new ArrayDeque<>();
+  private final Promise<Void> promise = Promise.promise();
+  private Function<List<Map>, Future<Void>> pageHandler;
+  private LongConsumer fetchTimeListener = nanos -> { };
+  private String lastExternalSystemId;
+  private boolean lastPageFetched;
+  private boolean fetching;
+  private boolean handling;
+
+  public ExistingUserReader(Map<String, String> okapiHeaders, String sourceType, int pageSize, int prefetchPages) {
+    this.okapiHeaders = okapiHeaders;
+    this.baseQuery = Strings.isNullOrEmpty(sourceType)
+        ? EXTERNAL_SYSTEM_ID + "<>''"
+        : EXTERNAL_SYSTEM_ID + "=^" + sourceType + "_*";
+    this.pageSize = Math.max(1, pageSize);
+    this.prefetchPages = Math.max(1, prefetchPages);
+  }
+
+  /**
+   * Register a listener that is told how many nanoseconds fetching each page took.
+   */
+  public ExistingUserReader withFetchTimeListener(LongConsumer fetchTimeListener) {
+    this.fetchTimeListener = fetchTimeListener;
+    return this;
+  }
+
+  /**
+   * Read all pages. The next page is handed to the handler when the future returned
+   * for the previous one has completed.
+   *
+   * @param pageHandler handles the users of one page in externalSystemId order
+   * @return succeeded future when all pages were handled, or the first failure
+   */
+  public Future<Void> read(Function<List<Map>, Future<Void>> pageHandler) {
+    this.pageHandler = pageHandler;
+    fetchNextPage();
+    return promise.future();
+  }
+
+  private void fetchNextPage() {
+    if (lastPageFetched || fetching || fetchedPages.size() >= prefetchPages || promise.future().isComplete()) {
+      return;
+    }
+    fetching = true;
+    // mod-users ignores orderBy and order, the cursor needs the page sorted by the CQL sortBy
+    String query = "(" + baseQuery + ")"
+        + (lastExternalSystemId == null ? "" : " and " + EXTERNAL_SYSTEM_ID + " > " + cqlQuote(lastExternalSystemId))
+        + " sortBy " + EXTERNAL_SYSTEM_ID;
+    String userSearchQuery = UriBuilder.fromPath(USERS_ENDPOINT)
+        .queryParam("query", query)
+        .queryParam("limit", pageSize)
+        .queryParam("offset", 0).build().toString();
+
+    long start = System.nanoTime();
+    HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, userSearchQuery)
+        .expect(ResponsePredicate.SC_OK)
+        .send()
+        .map(res -> getUsers(res.bodyAsJsonObject()))
+        .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_PROCESS_USER_SEARCH_RESPONSE))
+        .onComplete(ar -> {
+          fetching = false;
+          fetchTimeListener.accept(System.nanoTime() - start);
+          if (ar.failed()) {
+            promise.tryFail(ar.cause());
+            return;
+          }
+          addPage(ar.result());
+          fetchNextPage();
+          handleNextPage();
+        });
+  }
+
+  private void addPage(List<Map> users) {
+    Object last = users.isEmpty() ? null : users.get(users.size() - 1).get(EXTERNAL_SYSTEM_ID);
+    lastPageFetched = users.size() < pageSize || last == null;
+    lastExternalSystemId = last == null ? null : last.toString();
+    if (!users.isEmpty()) {
+      fetchedPages.add(users);
+    }
+    LOGGER.debug("Fetched {} existing users, {} pages waiting", users.size(), fetchedPages.size());
+  }
+
+  private void handleNextPage() {
+    if (handling || promise.future().isComplete()) {
+      return;
+    }
+    if (fetchedPages.isEmpty()) {
+      if (lastPageFetched && !fetching) {
+        promise.tryComplete();
+      }
+      return;
+    }
+    handling = true;
+    Future<Void> handled;
+    try {
+      handled = pageHandler.apply(fetchedPages.poll());
+    } catch (RuntimeException e) {
+      handled = Future.failedFuture(e);
+    }
+    handled.onComplete(ar -> {
+      handling = false;
+      if (ar.failed()) {
+        promise.tryFail(ar.cause());
+        return;
+      }
+      fetchNextPage();
+      handleNextPage();
+    });
+  }
+
+  private static List<Map> getUsers(JsonObject result) {
+    JsonArray array = result.getJsonArray("users");
+    if (array == null) {
+      return Collections.emptyList();
+    }
+    return array.getList();
+  }
+
+  private static String cqlQuote(String value) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '\\' || c == '"' || c == '*' || c == '?' || c == '^') {
+        quoted.append('\\');
+      }
+      quoted.append(c);
+    }
+    return quoted.append('"').toString();
+  }
+}
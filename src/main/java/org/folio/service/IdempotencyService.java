@@ -0,0 +1,130 @@
+package org.folio.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import com.google.common.base.Strings;
+import io.vertx.core.Future;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.rest.jaxrs.model.ImportJob;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.util.ConfigUtil;
+
+/**
+ * Remembers the imports submitted with an {@code Idempotency-Key} header, or with the same
+ * content if there is no header and {@code idempotency.content-hash} is set, so a repeated
+ * submission attaches to the running import or gets its response instead of running the
+ * import again. A key is only a repetition if the content is the same, see
+ * {@link SubmittedImport#isSamePayload}. Imports that failed are forgotten right away so they can
+ * be retried, completed imports after {@code idempotency.retention-minutes}.
+ */
+public class IdempotencyService {
+
+  private static final Logger LOGGER = LogManager.getLogger(IdempotencyService.class);
+
+  public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+  private static final String CONTENT_HASH_SETTING = "idempotency.content-hash";
+  private static final String RETENTION_SETTING = "idempotency.retention-minutes";
+  private static final int DEFAULT_RETENTION_MINUTES = 60;
+
+  private static final Map<String, Map<String, SubmittedImport>> imports = new ConcurrentHashMap<>();
+
+  /**
+   * @return the key of the import, the header if it is set, otherwise the hash of the import if
+   * enabled for the tenant, null if the import has no key
+   */
+  public static String getKey(String idempotencyKeyHeader, UserdataimportCollection userCollection,
+      String tenantId) {
+
+    if (!Strings.isNullOrEmpty(idempotencyKeyHeader)) {
+      return idempotencyKeyHeader;
+    }
+    return ConfigUtil.getBoolean(CONTENT_HASH_SETTING, tenantId, false)
+        ? ImportCheckpointService.getImportId(userCollection)
+        : null;
+  }
+
+  /**
+   * Register an import unless one with the same key is running or completed.
+   *
+   * @return the import submitted before with the key, null if the given import is the first
+   * or has no key
+   */
+  public SubmittedImport submit(String tenantId, String key, SubmittedImport submittedImport) {
+    long retention = getRetentionMillis();
+    if (key == null || retention <= 0) {
+      return null;
+    }
+    Map<String, SubmittedImport> tenantImports = imports.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>());
+    long now = System.currentTimeMillis();
+    tenantImports.values().removeIf(submitted -> submitted.isExpired(now, retention));
+
+    SubmittedImport previous = tenantImports.putIfAbsent(key, submittedImport);
+    if (previous != null) {
+      LOGGER.info("Import {} was submitted before, not running it again.", key);
+      return previous;
+    }
+    submittedImport.getResponse().onComplete(ar -> {
+      if (ar.failed() || ar.result().getError() != null) {
+        tenantImports.remove(key, submittedImport);
+      } else {
+        submittedImport.completedAt = System.currentTimeMillis();
+      }
+    });
+    return null;
+  }
+
+  private static long getRetentionMillis() {
+    return TimeUnit.MINUTES.toMillis(ConfigUtil.getInt(RETENTION_SETTING, DEFAULT_RETENTION_MINUTES));
+  }
+
+  /**
+   * An import that is running or completed, with the hash of its content and its job if it is
+   * awaited in the background.
+   */
+  public static class SubmittedImport {
+
+    private final Future<ImportResponse> response;
+    private final String payloadHash;
+    private ImportJob job;
+    private volatile long completedAt;
+
+    public SubmittedImport(Future<ImportResponse> response, UserdataimportCollection userCollection) {
+      this.response = response;
+      this.payloadHash = ImportCheckpointService.getImportId(userCollection);
+    }
+
+    public Future<ImportResponse> getResponse() {
+      return response;
+    }
+
+    /**
+     * @return whether the other import has the same users and options, a key reused for another
+     * import must not return the response of this one
+     */
+    public boolean isSamePayload(SubmittedImport other) {
+      return payloadHash.equals(other.payloadHash);
+    }
+
+    /**
+     * Set or replace the job of the import while no other request can, so a repeated
+     * submission arriving while the import is registered gets the same job.
+     *
+     * @param attach gets the current job, null if there is none, and returns the job to keep
+     * @return the job of the import
+     */
+    public synchronized ImportJob attachJob(UnaryOperator<ImportJob> attach) {
+      job = attach.apply(job);
+      return job;
+    }
+
+    boolean isExpired(long now, long retention) {
+      return completedAt > 0 && now - completedAt > retention;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package org.folio.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.Json;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.ImportCheckpoint;
+import org.folio.model.PartitionCheckpoint;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.persist.Criteria.Criteria;
+import org.folio.rest.persist.Criteria.Criterion;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.persist.interfaces.Results;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.util.ConfigUtil;
+
+/**
+ * Stores the outcome of every finished partition of an import in the tenant schema when
+ * {@code checkpoint.enabled} is set. An import is identified by the hash of its content, so
+ * an import that is sent again after a restart skips the users that were already imported.
+ * The checkpoints are removed when the import completes, also if users failed, so only an
+ * import that was interrupted is resumed. Checkpoints older than {@code checkpoint.ttl-hours}
+ * are ignored and purged, an import sent again later is imported in full.
+ */
+public class ImportCheckpointService {
+
+  private static final Logger LOGGER = LogManager.getLogger(ImportCheckpointService.class);
+  static final String CHECKPOINT_TABLE = "partition_checkpoint";
+  private static final String CHECKPOINT_SETTING = "checkpoint.enabled";
+  private static final String TTL_SETTING = "checkpoint.ttl-hours";
+  private static final int DEFAULT_TTL_HOURS = 24;
+
+  private static final String PURGE_SQL =
+      "DELETE FROM %s." + CHECKPOINT_TABLE + " WHERE COALESCE((jsonb->>'createdDate')::bigint, 0) < $1";
+
+  /**
+   * @return whether the imports of the tenant are checkpointed, the tenant needs the module database then
+   */
+  public static boolean isEnabled(String tenantId) {
+    return ConfigUtil.getBoolean(CHECKPOINT_SETTING, tenantId, false);
+  }
+
+  /**
+   * @return the id of the import derived from its users and options
+   */
+  public static String getImportId(UserdataimportCollection userCollection) {
+    return UUID.nameUUIDFromBytes(Json.encode(userCollection).getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  /**
+   * Load the partitions of the import that were finished within the TTL, the expired
+   * checkpoints of the tenant are purged first. If they can't be loaded all users are
+   * imported again.
+   */
+  public Future<ImportCheckpoint> load(Map<String, String> okapiHeaders, String importId) {
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    if (!isEnabled(tenantId)) {
+      return Future.succeededFuture(ImportCheckpoint.disabled());
+    }
+    long expiry = System.currentTimeMillis()
+        - TimeUnit.HOURS.toMillis(ConfigUtil.getInt(TTL_SETTING, tenantId, DEFAULT_TTL_HOURS));
+    return purge(tenantId, expiry)
+        .compose(v -> {
+          Promise<Results<PartitionCheckpoint>> promise = Promise.promise();
+          getPostgresClient(tenantId)
+              .get(CHECKPOINT_TABLE, PartitionCheckpoint.class, byImportId(importId), false, promise);
+          return promise.future();
+        })
+        .map(results -> new ImportCheckpoint(importId, results.getResults().stream()
+            .filter(partition -> partition.getCreatedDate() >= expiry)
+            .collect(Collectors.toList())))
+        .onSuccess(checkpoint -> {
+          if (checkpoint.getCommittedRecords() > 0) {
+            LOGGER.info("Resuming import {}, {} users were imported before.", importId,
+                checkpoint.getCommittedRecords());
+          }
+        })
+        .otherwise(e -> {
+          LOGGER.warn("Failed to load the checkpoints of import {}, importing all users: {}", importId,
+              e.getMessage());
+          return new ImportCheckpoint(importId, Collections.emptyList());
+        });
+  }
+
+  /**
+   * Remove the checkpoints of the tenant created before the expiry. A failure is only logged,
+   * the expired checkpoints are ignored anyway.
+   */
+  private Future<Void> purge(String tenantId, long expiry) {
+    Promise<RowSet<Row>> promise = Promise.promise();
+    getPostgresClient(tenantId).execute(String.format(PURGE_SQL, PostgresClient.convertToPsqlStandard(tenantId)),
+        Tuple.of(expiry), promise);
+    return promise.future()
+        .onSuccess(rows -> {
+          if (rows.rowCount() > 0) {
+            LOGGER.info("Purged {} expired checkpoints of tenant {}.", rows.rowCount(), tenantId);
+          }
+        })
+        .<Void>mapEmpty()
+        .otherwise(e -> {
+          LOGGER.warn("Failed to purge the expired checkpoints of tenant {}: {}", tenantId, e.getMessage());
+          return null;
+        });
+  }
+
+  /**
+   * Store the outcome of a finished partition. A failure is only logged, the users are
+   * imported again if the import is resumed.
+   *
+   * @param externalSystemIds the users of the partition that were not failed
+   */
+  public Future<Void> save(Map<String, String> okapiHeaders, ImportCheckpoint checkpoint,
+      List<String> externalSystemIds, ImportResponse response) {
+
+    if (!checkpoint.isEnabled() || externalSystemIds.isEmpty()) {
+      return Future.succeededFuture();
+    }
+    PartitionCheckpoint partition = new PartitionCheckpoint();
+    partition.setId(UUID.randomUUID().toString());
+    partition.setImportId(checkpoint.getImportId());
+    partition.setExternalSystemIds(externalSystemIds);
+    partition.setCreatedRecords(response.getCreatedRecords());
+    partition.setUpdatedRecords(response.getUpdatedRecords());
+    partition.setUnchangedRecords(response.getUnchangedRecords());
+    partition.setCreatedDate(System.currentTimeMillis());
+
+    Promise<String> promise = Promise.promise();
+    getPostgresClient(TenantTool.tenantId(okapiHeaders)).save(CHECKPOINT_TABLE, partition.getId(), partition, promise);
+    return promise.future()
+        .<Void>mapEmpty()
+        .otherwise(e -> {
+          LOGGER.warn("Failed to save a checkpoint of import {}: {}", checkpoint.getImportId(), e.getMessage());
+          return null;
+        });
+  }
+
+  /**
+   * Remove the checkpoints of a completed import.
+   */
+  public Future<Void> delete(Map<String, String> okapiHeaders, ImportCheckpoint checkpoint) {
+    if (!checkpoint.isEnabled()) {
+      return Future.succeededFuture();
+    }
+    Promise<RowSet<Row>> promise = Promise.promise();
+    getPostgresClient(TenantTool.tenantId(okapiHeaders))
+        .delete(CHECKPOINT_TABLE, byImportId(checkpoint.getImportId()), promise);
+    return promise.future()
+        .<Void>mapEmpty()
+        .otherwise(e -> {
+          LOGGER.warn("Failed to delete the checkpoints of import {}: {}", checkpoint.getImportId(), e.getMessage());
+          return null;
+        });
+  }
+
+  private static Criterion byImportId(String importId) {
+    return new Criterion(new Criteria().addField("'importId'").setOperation("=").setVal(importId));
+  }
+
+  private static PostgresClient getPostgresClient(String tenantId) {
+    return PostgresClient.getInstance(Vertx.currentContext().owner(), tenantId);
+  }
+}
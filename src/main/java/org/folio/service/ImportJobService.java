@@ -0,0 +1,87 @@
+package org.folio.service;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import io.vertx.core.json.JsonObject;
+
+import org.folio.rest.jaxrs.model.ImportJob;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.util.ConfigUtil;
+
+/**
+ * Keeps track of the imports running in the background. Finished jobs are kept for
+ * {@code job.retention-minutes} so their result can be fetched.
+ */
+public class ImportJobService {
+
+  private static final String JOB_RETENTION_SETTING = "job.retention-minutes";
+  private static final int DEFAULT_JOB_RETENTION_MINUTES = 24 * 60;
+
+  private static final Map<String, Map<String, ImportJob>> jobs = new ConcurrentHashMap<>();
+
+  public ImportJob create(String tenantId, int totalRecords) {
+    ImportJob job = new ImportJob()
+      .withId(UUID.randomUUID().toString())
+      .withStatus(ImportJob.Status.IN_PROGRESS)
+      .withTotalRecords(totalRecords)
+      .withProcessedRecords(0)
+      .withStartedDate(new Date());
+    getTenantJobs(tenantId).put(job.getId(), job);
+    return job;
+  }
+
+  public void addProcessedRecords(ImportJob job, int processedRecords) {
+    synchronized (job) {
+      job.setProcessedRecords(job.getProcessedRecords() + processedRecords);
+    }
+  }
+
+  public void complete(ImportJob job, ImportResponse importResponse) {
+    synchronized (job) {
+      job.setStatus(importResponse.getError() == null ? ImportJob.Status.COMPLETED : ImportJob.Status.FAILED);
+      job.setProcessedRecords(job.getTotalRecords());
+      job.setImportResponse(importResponse);
+      job.setFinishedDate(new Date());
+    }
+  }
+
+  public Optional<ImportJob> get(String tenantId, String jobId) {
+    removeExpiredJobs(tenantId);
+    return Optional.ofNullable(getTenantJobs(tenantId).get(jobId))
+      .map(this::copy);
+  }
+
+  public List<ImportJob> list(String tenantId) {
+    removeExpiredJobs(tenantId);
+    return getTenantJobs(tenantId).values().stream()
+      .map(this::copy)
+      .sorted(Comparator.comparing(ImportJob::getStartedDate).reversed())
+      .collect(Collectors.toList());
+  }
+
+  private Map<String, ImportJob> getTenantJobs(String tenantId) {
+    return jobs.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>());
+  }
+
+  private ImportJob copy(ImportJob job) {
+    synchronized (job) {
+      return JsonObject.mapFrom(job).mapTo(ImportJob.class);
+    }
+  }
+
+  private void removeExpiredJobs(String tenantId) {
+    long retention = TimeUnit.MINUTES.toMillis(
+      ConfigUtil.getInt(JOB_RETENTION_SETTING, DEFAULT_JOB_RETENTION_MINUTES));
+    long now = System.currentTimeMillis();
+    getTenantJobs(tenantId).values()
+      .removeIf(job -> job.getFinishedDate() != null && now - job.getFinishedDate().getTime() > retention);
+  }
+}
@@ -0,0 +1,471 @@
+package org.folio.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.Tuple;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.QueuedPartition;
+import org.folio.model.QueuedPartition.State;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.util.ConfigUtil;
+import org.folio.util.OkapiHeaders;
+
+/**
+ * Queue of import partitions in the tenant schemas shared by all module instances when
+ * {@code queue.enabled} is set. The instance receiving an import queues its partitions and
+ * waits for them, every instance claims queued partitions with {@code FOR UPDATE SKIP LOCKED}
+ * and imports them. A claimed partition is leased, the lease is renewed while the partition is
+ * imported. A partition whose lease expired, e.g. because its instance crashed, is claimed
+ * again by another instance up to {@code queue.max-attempts} times.
+ *
+ * <p>An import is identified by the hash of its content like a checkpointed one, an import
+ * sent again while its partitions are queued waits for them instead of queueing them again.
+ * The Okapi token is not stored: the receiving instance imports its partitions with the token
+ * of the import, the other instances with the token of the {@link SystemUserService system user},
+ * or not at all if there is none. The partitions are deleted when the last submission that
+ * waits for them on the instance that queued them is done. A submission on another instance
+ * whose partitions are deleted meanwhile reports the partitions it saw done. Partitions queued
+ * longer than {@code queue.retention-hours} ago are purged, e.g. if the receiving instance crashed.
+ */
+public class PartitionQueueService {
+
+  private static final Logger LOGGER = LogManager.getLogger(PartitionQueueService.class);
+
+  static final String PARTITION_TABLE = "import_partition";
+  private static final String QUEUE_SETTING = "queue.enabled";
+  private static final String PARTITION_SIZE_SETTING = "queue.partition-size";
+  private static final int DEFAULT_PARTITION_SIZE = 1000;
+  private static final String LEASE_SETTING = "queue.lease-seconds";
+  private static final int DEFAULT_LEASE_SECONDS = 60;
+  private static final String MAX_ATTEMPTS_SETTING = "queue.max-attempts";
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  private static final String POLL_INTERVAL_SETTING = "queue.poll-interval-ms";
+  private static final int DEFAULT_POLL_INTERVAL_MS = 1000;
+  private static final String RETENTION_SETTING = "queue.retention-hours";
+  private static final int DEFAULT_RETENTION_HOURS = 24;
+
+  /** Identifies the leases of this module instance. */
+  private static final String OWNER = UUID.randomUUID().toString();
+
+  /** The imports this instance received and waits for, by tenant and import id. */
+  private static final Map<String, ReceivedImport> receivedImports = new ConcurrentHashMap<>();
+
+  private static final String INSERT_SQL =
+      "INSERT INTO %s." + PARTITION_TABLE + " (id, jsonb) "
+      + "SELECT (partition->>'id')::uuid, partition FROM jsonb_array_elements($1::jsonb) AS partition "
+      + "ON CONFLICT (id) DO NOTHING";
+  private static final String EXISTS_SQL =
+      "SELECT count(*)::int FROM %s." + PARTITION_TABLE + " WHERE jsonb->>'importId' = $1";
+  private static final String REQUEUE_SQL =
+      "UPDATE %s." + PARTITION_TABLE + " SET jsonb = jsonb || jsonb_build_object("
+      + "'state', '" + State.QUEUED + "', 'attempts', 0) "
+      + "WHERE jsonb->>'importId' = $1 AND jsonb->>'state' = '" + State.CLAIMED + "' "
+      + "AND (jsonb->>'leaseExpires')::bigint < $2 AND (jsonb->>'attempts')::int >= $3";
+  private static final String CLAIM_SQL =
+      "UPDATE %1$s." + PARTITION_TABLE + " SET jsonb = jsonb || jsonb_build_object("
+      + "'state', '" + State.CLAIMED + "', 'owner', $1::text, 'leaseExpires', $2::bigint, "
+      + "'attempts', COALESCE((jsonb->>'attempts')::int, 0) + 1) "
+      + "WHERE id = (SELECT id FROM %1$s." + PARTITION_TABLE + " "
+      + "WHERE (jsonb->>'state' = '" + State.QUEUED + "' "
+      + "OR (jsonb->>'state' = '" + State.CLAIMED + "' AND (jsonb->>'leaseExpires')::bigint < $3 "
+      + "AND (jsonb->>'attempts')::int < $4)) "
+      + "AND ($5::text[] IS NULL OR jsonb->>'importId' = ANY($5::text[])) "
+      + "ORDER BY (jsonb->>'queuedAt')::bigint, (jsonb->>'sequence')::int "
+      + "LIMIT 1 FOR UPDATE SKIP LOCKED) "
+      + "RETURNING jsonb";
+  private static final String RENEW_SQL =
+      "UPDATE %s." + PARTITION_TABLE + " SET jsonb = jsonb || jsonb_build_object('leaseExpires', $2::bigint) "
+      + "WHERE id = $1 AND jsonb->>'owner' = $3 AND jsonb->>'state' = '" + State.CLAIMED + "'";
+  private static final String COMPLETE_SQL =
+      "UPDATE %s." + PARTITION_TABLE + " SET jsonb = (jsonb - 'users') || jsonb_build_object("
+      + "'state', '" + State.DONE + "', 'response', $2::jsonb) "
+      + "WHERE id = $1 AND jsonb->>'owner' = $3";
+  private static final String STATES_SQL =
+      "SELECT jsonb - 'users' FROM %s." + PARTITION_TABLE + " WHERE jsonb->>'importId' = $1";
+  private static final String DELETE_SQL =
+      "DELETE FROM %s." + PARTITION_TABLE + " WHERE jsonb->>'importId' = $1";
+  private static final String PURGE_SQL =
+      "DELETE FROM %s." + PARTITION_TABLE + " WHERE (jsonb->>'queuedAt')::bigint < $1 "
+      + "AND NOT (jsonb->>'state' = '" + State.CLAIMED + "' AND (jsonb->>'leaseExpires')::bigint >= $2)";
+  private static final String TENANTS_SQL =
+      "SELECT nspname FROM pg_namespace WHERE right(nspname, length($1::text)) = $1::text "
+      + "AND to_regclass(nspname || '." + PARTITION_TABLE + "') IS NOT NULL";
+
+  private final SystemUserService systemUserService = new SystemUserService();
+
+  public static boolean isEnabled() {
+    return ConfigUtil.getBoolean(QUEUE_SETTING, false);
+  }
+
+  public static int getPollInterval() {
+    return ConfigUtil.getInt(POLL_INTERVAL_SETTING, DEFAULT_POLL_INTERVAL_MS);
+  }
+
+  public static long getLeaseMillis() {
+    return ConfigUtil.getInt(LEASE_SETTING, DEFAULT_LEASE_SECONDS) * 1000L;
+  }
+
+  /**
+   * Split the users of an import into the partitions to queue. Every partition has the
+   * options of the import except the included departments and custom fields and the refresh
+   * of the reference data, those are applied once by the receiving instance before the
+   * partitions are queued, so the partitions only read the reference data.
+   */
+  public static List<UserdataimportCollection> split(UserdataimportCollection userCollection, String tenantId) {
+    int partitionSize = Math.max(1, ConfigUtil.getInt(PARTITION_SIZE_SETTING, tenantId, DEFAULT_PARTITION_SIZE));
+    List<User> users = userCollection.getUsers();
+    List<UserdataimportCollection> partitions = new ArrayList<>();
+    for (int from = 0; from < users.size(); from += partitionSize) {
+      List<User> partition = new ArrayList<>(users.subList(from, Math.min(users.size(), from + partitionSize)));
+      partitions.add(new UserdataimportCollection()
+          .withUsers(partition)
+          .withTotalRecords(partition.size())
+          .withDeactivateMissingUsers(false)
+          .withUpdateOnlyPresentFields(userCollection.getUpdateOnlyPresentFields())
+          .withSourceType(userCollection.getSourceType())
+          .withPartitionSize(userCollection.getPartitionSize())
+          .withAdaptivePartitionSize(userCollection.getAdaptivePartitionSize()));
+    }
+    return partitions;
+  }
+
+  /**
+   * Queue the partitions of an import unless they are queued already, e.g. by an earlier
+   * submission of the import whose instance crashed. Partitions of it that were abandoned are
+   * queued again. The headers are kept in memory until every submission of the import on this
+   * instance is {@link #delete deleted} so this instance imports its partitions with them.
+   *
+   * @param importId the hash of the import
+   * @return true if the partitions were queued, false if the queued ones are awaited
+   */
+  public Future<Boolean> enqueue(Map<String, String> okapiHeaders, String tenantId, String importId,
+      List<UserdataimportCollection> partitions) {
+
+    String importKey = getImportKey(tenantId, importId);
+    receivedImports.compute(importKey, (key, received) -> {
+      ReceivedImport submitted = received == null ? new ReceivedImport(OkapiHeaders.of(okapiHeaders)) : received;
+      submitted.waiters++;
+      return submitted;
+    });
+    return execute(tenantId, EXISTS_SQL, Tuple.of(importId))
+        .compose(rows -> {
+          if (rows.iterator().next().getInteger(0) > 0) {
+            return requeueAbandoned(tenantId, importId).map(false);
+          }
+          return insert(okapiHeaders, tenantId, importId, partitions)
+              .map(inserted -> inserted > 0);
+        })
+        .onSuccess(queued -> {
+          if (queued) {
+            receivedImports.computeIfPresent(importKey, (key, received) -> {
+              received.queued = true;
+              return received;
+            });
+          }
+        })
+        .onSuccess(queued -> {
+          if (queued) {
+            LOGGER.info("Queued import {} in {} partitions.", importId, partitions.size());
+          } else {
+            LOGGER.info("Import {} is queued already, waiting for its partitions.", importId);
+          }
+        });
+  }
+
+  private Future<Integer> insert(Map<String, String> okapiHeaders, String tenantId, String importId,
+      List<UserdataimportCollection> partitions) {
+
+    long now = System.currentTimeMillis();
+    Map<String, String> storedHeaders = getStoredHeaders(okapiHeaders);
+    JsonArray entities = new JsonArray();
+    for (int i = 0; i < partitions.size(); i++) {
+      QueuedPartition partition = new QueuedPartition();
+      // the same for every submission of the import, so only one of them is queued
+      partition.setId(UUID.nameUUIDFromBytes((importId + ":" + i).getBytes(StandardCharsets.UTF_8)).toString());
+      partition.setImportId(importId);
+      partition.setSequence(i);
+      partition.setQueuedAt(now);
+      partition.setState(State.QUEUED);
+      partition.setOkapiHeaders(storedHeaders);
+      partition.setUsers(partitions.get(i));
+      entities.add(JsonObject.mapFrom(partition));
+    }
+    return execute(tenantId, INSERT_SQL, Tuple.of(entities))
+        .map(RowSet::rowCount);
+  }
+
+  private Future<Void> requeueAbandoned(String tenantId, String importId) {
+    Tuple params = Tuple.of(importId, System.currentTimeMillis(),
+        ConfigUtil.getInt(MAX_ATTEMPTS_SETTING, DEFAULT_MAX_ATTEMPTS));
+    return execute(tenantId, REQUEUE_SQL, params)
+        .onSuccess(rows -> {
+          if (rows.rowCount() > 0) {
+            LOGGER.info("Queued {} abandoned partitions of import {} again.", rows.rowCount(), importId);
+          }
+        })
+        .mapEmpty();
+  }
+
+  /**
+   * Claim the next queued partition of the tenant, or a partition whose lease expired. Without
+   * a system user only the partitions of the imports this instance received are claimed.
+   *
+   * @return the claimed partition, null if there is none
+   */
+  public Future<QueuedPartition> claim(String tenantId) {
+    String[] importIds = null;
+    if (!SystemUserService.isConfigured()) {
+      String prefix = getImportKey(tenantId, "");
+      importIds = receivedImports.keySet().stream()
+          .filter(key -> key.startsWith(prefix))
+          .map(key -> key.substring(prefix.length()))
+          .toArray(String[]::new);
+      if (importIds.length == 0) {
+        return Future.succeededFuture();
+      }
+    }
+    long now = System.currentTimeMillis();
+    Tuple params = Tuple.of(OWNER, now + getLeaseMillis(), now,
+        ConfigUtil.getInt(MAX_ATTEMPTS_SETTING, DEFAULT_MAX_ATTEMPTS), importIds);
+    return execute(tenantId, CLAIM_SQL, params)
+        .map(rows -> {
+          if (rows.size() == 0) {
+            return null;
+          }
+          QueuedPartition partition = rows.iterator().next().getJsonObject(0).mapTo(QueuedPartition.class);
+          if (partition.getAttempts() > 1) {
+            LOGGER.info("Reclaimed partition {} of import {}, attempt {}.", partition.getSequence(),
+                partition.getImportId(), partition.getAttempts());
+          }
+          return partition;
+        });
+  }
+
+  /**
+   * Get the headers to import a claimed partition with, those of the import if this instance
+   * received it, otherwise the stored ones with the token of the system user.
+   */
+  public Future<Map<String, String>> getImportHeaders(String tenantId, QueuedPartition partition) {
+    ReceivedImport received = receivedImports.get(getImportKey(tenantId, partition.getImportId()));
+    if (received != null) {
+      return Future.succeededFuture(received.okapiHeaders);
+    }
+    OkapiHeaders storedHeaders = OkapiHeaders.of(partition.getOkapiHeaders());
+    return systemUserService.getToken(storedHeaders)
+        .map(token -> storedHeaders.with(XOkapiHeaders.TOKEN, token));
+  }
+
+  /**
+   * Extend the lease of a claimed partition.
+   *
+   * @return false if the lease expired and the partition was claimed by another instance
+   */
+  public Future<Boolean> renewLease(String tenantId, QueuedPartition partition) {
+    Tuple params = Tuple.of(UUID.fromString(partition.getId()), System.currentTimeMillis() + getLeaseMillis(), OWNER);
+    return execute(tenantId, RENEW_SQL, params)
+        .map(rows -> rows.rowCount() > 0);
+  }
+
+  /**
+   * Store the response of an imported partition. It is dropped if the lease was lost.
+   */
+  public Future<Void> complete(String tenantId, QueuedPartition partition, ImportResponse response) {
+    Tuple params = Tuple.of(UUID.fromString(partition.getId()), JsonObject.mapFrom(response), OWNER);
+    return execute(tenantId, COMPLETE_SQL, params)
+        .onSuccess(rows -> {
+          if (rows.rowCount() == 0) {
+            LOGGER.warn("Lost the lease of partition {} of import {}, it is imported again.",
+                partition.getSequence(), partition.getImportId());
+          }
+        })
+        .mapEmpty();
+  }
+
+  /**
+   * Wait until every partition of the import is done or abandoned.
+   *
+   * @param partitionListener is told the number of users of every partition that is done
+   * @return the partitions without their users, in the order they were queued
+   */
+  public Future<List<QueuedPartition>> await(String tenantId, String importId, IntConsumer partitionListener) {
+    Promise<List<QueuedPartition>> promise = Promise.promise();
+    poll(tenantId, importId, partitionListener, new HashSet<>(), Collections.emptyList(), promise);
+    return promise.future();
+  }
+
+  private void poll(String tenantId, String importId, IntConsumer partitionListener, Set<String> done,
+      List<QueuedPartition> seen, Promise<List<QueuedPartition>> promise) {
+
+    Vertx vertx = Vertx.currentContext().owner();
+    vertx.setTimer(getPollInterval(), id -> getPartitions(tenantId, importId)
+        .onFailure(promise::fail)
+        .onSuccess(partitions -> {
+          long now = System.currentTimeMillis();
+          int maxAttempts = ConfigUtil.getInt(MAX_ATTEMPTS_SETTING, DEFAULT_MAX_ATTEMPTS);
+          boolean finished = true;
+          for (QueuedPartition partition : partitions) {
+            if (partition.getState() == State.DONE) {
+              if (done.add(partition.getId())) {
+                partitionListener.accept(partition.getResponse().getTotalRecords());
+              }
+            } else if (!partition.isAbandoned(now, maxAttempts)) {
+              finished = false;
+            }
+          }
+          if (partitions.isEmpty() && seen.isEmpty()) {
+            promise.fail("The partitions of import " + importId + " were removed before they were done");
+          } else if (partitions.isEmpty()) {
+            // another instance that queued the import is done with it
+            LOGGER.info("The partitions of import {} were deleted by the instance that queued them.", importId);
+            promise.complete(sort(seen));
+          } else if (finished) {
+            promise.complete(sort(partitions));
+          } else {
+            poll(tenantId, importId, partitionListener, done, partitions, promise);
+          }
+        }));
+  }
+
+  private static List<QueuedPartition> sort(List<QueuedPartition> partitions) {
+    partitions.sort((a, b) -> Integer.compare(a.getSequence(), b.getSequence()));
+    return partitions;
+  }
+
+  private Future<List<QueuedPartition>> getPartitions(String tenantId, String importId) {
+    return execute(tenantId, STATES_SQL, Tuple.of(importId))
+        .map(rows -> {
+          List<QueuedPartition> partitions = new ArrayList<>();
+          rows.forEach(row -> partitions.add(row.getJsonObject(0).mapTo(QueuedPartition.class)));
+          return partitions;
+        });
+  }
+
+  /**
+   * Forget a finished submission of an import. The headers are forgotten and the partitions
+   * removed when no other submission on this instance waits for them, the partitions only if
+   * this instance queued them, so the submissions waiting on other instances can still see them.
+   */
+  public Future<Void> delete(String tenantId, String importId) {
+    boolean[] queued = new boolean[1];
+    receivedImports.computeIfPresent(getImportKey(tenantId, importId), (key, received) -> {
+      if (--received.waiters > 0) {
+        return received;
+      }
+      queued[0] = received.queued;
+      return null;
+    });
+    if (!queued[0]) {
+      return Future.succeededFuture();
+    }
+    return execute(tenantId, DELETE_SQL, Tuple.of(importId))
+        .<Void>mapEmpty()
+        .otherwise(e -> {
+          LOGGER.warn("Failed to delete the partitions of import {}: {}", importId, e.getMessage());
+          return null;
+        });
+  }
+
+  /**
+   * Remove the partitions of the tenant queued before the retention, unless they are being
+   * imported, e.g. of imports whose instance crashed while waiting for them.
+   *
+   * @return the number of removed partitions
+   */
+  public Future<Integer> purge(String tenantId) {
+    long now = System.currentTimeMillis();
+    long retention = TimeUnit.HOURS.toMillis(ConfigUtil.getInt(RETENTION_SETTING, tenantId, DEFAULT_RETENTION_HOURS));
+    return execute(tenantId, PURGE_SQL, Tuple.of(now - retention, now))
+        .map(RowSet::rowCount)
+        .onSuccess(count -> {
+          if (count > 0) {
+            LOGGER.info("Purged {} expired partitions of tenant {}.", count, tenantId);
+          }
+        });
+  }
+
+  /**
+   * @return the tenants the module is enabled for with a partition queue
+   */
+  public Future<List<String>> getTenants(Vertx vertx) {
+    String suffix = "_" + PostgresClient.getModuleName();
+    Promise<RowSet<Row>> promise = Promise.promise();
+    PostgresClient.getInstance(vertx).select(TENANTS_SQL, Tuple.of(suffix), promise);
+    return promise.future()
+        .map(rows -> {
+          List<String> tenants = new ArrayList<>();
+          for (Row row : rows) {
+            String schema = row.getString(0);
+            tenants.add(schema.substring(0, schema.length() - suffix.length()));
+          }
+          return tenants;
+        });
+  }
+
+  /**
+   * The headers the partitions are imported with by other instances, without the token.
+   */
+  static Map<String, String> getStoredHeaders(Map<String, String> okapiHeaders) {
+    Map<String, String> storedHeaders = new HashMap<>();
+    OkapiHeaders.createForwardedHeaders(okapiHeaders).forEach(header -> {
+      if (!XOkapiHeaders.TOKEN.equalsIgnoreCase(header.getKey())) {
+        storedHeaders.put(header.getKey(), header.getValue());
+      }
+    });
+    storedHeaders.put(XOkapiHeaders.URL, okapiHeaders.get(XOkapiHeaders.URL));
+    return storedHeaders;
+  }
+
+  private static String getImportKey(String tenantId, String importId) {
+    return tenantId + ":" + importId;
+  }
+
+  /**
+   * An import received by this instance, the fields are only changed while the entry is
+   * computed in {@link #receivedImports}.
+   */
+  private static class ReceivedImport {
+
+    private final OkapiHeaders okapiHeaders;
+    private int waiters;
+    private boolean queued;
+
+    ReceivedImport(OkapiHeaders okapiHeaders) {
+      this.okapiHeaders = okapiHeaders;
+    }
+  }
+
+  private static Future<RowSet<Row>> execute(String tenantId, String sql, Tuple params) {
+    Promise<RowSet<Row>> promise = Promise.promise();
+    getPostgresClient(tenantId)
+        .execute(String.format(sql, PostgresClient.convertToPsqlStandard(tenantId)), params, promise);
+    return promise.future();
+  }
+
+  private static PostgresClient getPostgresClient(String tenantId) {
+    return PostgresClient.getInstance(Vertx.currentContext().owner(), tenantId);
+  }
+}
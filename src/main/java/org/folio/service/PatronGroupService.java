@@ -12,13 +12,27 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
 import org.folio.util.HttpClientUtil;
 import org.folio.util.JsonObjectUtil;
+import org.folio.util.ReferenceDataCache;
 
 public class PatronGroupService {
 
   private static final String USER_GROUPS_ARRAY_KEY = "usergroups";
   private static final String USER_GROUP_NAME_OBJECT_KEY = "group";
 
+  private final ReferenceDataCache cache = new ReferenceDataCache("patronGroups");
+
   public Future<Map<String, String>> getPatronGroups(Map<String, String> okapiHeaders) {
+    return cache.get(okapiHeaders, this::loadPatronGroups);
+  }
+
+  /**
+   * Load the patron groups bypassing the cache.
+   */
+  public Future<Map<String, String>> refreshPatronGroups(Map<String, String> okapiHeaders) {
+    return cache.refresh(okapiHeaders, this::loadPatronGroups);
+  }
+
+  private Future<Map<String, String>> loadPatronGroups(Map<String, String> okapiHeaders) {
     final String query = PATRON_GROUPS_ENDPOINT + LIMIT_ALL;
 
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, query)
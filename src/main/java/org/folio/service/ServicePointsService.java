@@ -12,14 +12,27 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
 import org.folio.util.HttpClientUtil;
 import org.folio.util.JsonObjectUtil;
+import org.folio.util.ReferenceDataCache;
 
 public class ServicePointsService {
 
   public static final String SERVICE_POINTS_ARRAY_KEY = "servicepoints";
   public static final String SERVICE_POINT_NAME_OBJECT_KEY = "name";
 
+  private final ReferenceDataCache cache = new ReferenceDataCache("servicePoints");
 
   public Future<Map<String, String>> getServicePoints(Map<String, String> okapiHeaders) {
+    return cache.get(okapiHeaders, this::loadServicePoints);
+  }
+
+  /**
+   * Load the service points bypassing the cache.
+   */
+  public Future<Map<String, String>> refreshServicePoints(Map<String, String> okapiHeaders) {
+    return cache.refresh(okapiHeaders, this::loadServicePoints);
+  }
+
+  private Future<Map<String, String>> loadServicePoints(Map<String, String> okapiHeaders) {
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, SERVICE_POINTS_ENDPOINT + LIMIT_ALL)
         .expect(ResponsePredicate.SC_OK)
         .send()
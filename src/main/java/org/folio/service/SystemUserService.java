@@ -0,0 +1,87 @@
+package org.folio.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Strings;
+import io.vertx.core.Future;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.tools.utils.TenantTool;
+import org.folio.util.ConfigUtil;
+import org.folio.util.HttpClientUtil;
+import org.folio.util.OkapiHeaders;
+
+/**
+ * Logs in the user the partitions of other module instances are imported with, so the Okapi
+ * token of an import is never stored in the partition queue. The user is set with
+ * {@code queue.system-user.username} and {@code queue.system-user.password} and must exist in
+ * every tenant with the permissions of the import. The tokens are cached per tenant.
+ */
+public class SystemUserService {
+
+  private static final Logger LOGGER = LogManager.getLogger(SystemUserService.class);
+
+  private static final String USERNAME_SETTING = "queue.system-user.username";
+  private static final String PASSWORD_SETTING = "queue.system-user.password";
+  private static final String LOGIN_ENDPOINT = "/authn/login";
+  private static final long TOKEN_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+
+  /**
+   * @return whether a system user is set, otherwise an instance only imports the partitions
+   * of the imports it received
+   */
+  public static boolean isConfigured() {
+    return ConfigUtil.getString(USERNAME_SETTING, null) != null;
+  }
+
+  /**
+   * Get a token of the system user for the tenant of the headers, logging in with the Okapi
+   * URL of the headers if there is no cached token.
+   */
+  public Future<String> getToken(Map<String, String> okapiHeaders) {
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    CachedToken cached = tokens.get(tenantId);
+    if (cached != null && cached.expires > System.currentTimeMillis()) {
+      return Future.succeededFuture(cached.token);
+    }
+    JsonObject credentials = new JsonObject()
+        .put("username", ConfigUtil.getString(USERNAME_SETTING, null))
+        .put("password", ConfigUtil.getString(PASSWORD_SETTING, ""));
+    OkapiHeaders loginHeaders = OkapiHeaders.of(Map.of(
+        XOkapiHeaders.TENANT, tenantId,
+        XOkapiHeaders.URL, okapiHeaders.get(XOkapiHeaders.URL)));
+    return HttpClientUtil.getRequestOkapi(HttpMethod.POST, loginHeaders, LOGIN_ENDPOINT)
+        .expect(ResponsePredicate.SC_CREATED)
+        .sendJsonObject(credentials)
+        .compose(res -> {
+          String token = res.getHeader(XOkapiHeaders.TOKEN);
+          if (Strings.isNullOrEmpty(token)) {
+            return Future.failedFuture("Login of the system user returned no token");
+          }
+          tokens.put(tenantId, new CachedToken(token, System.currentTimeMillis() + TOKEN_TTL_MILLIS));
+          LOGGER.info("Logged in the system user of tenant {}.", tenantId);
+          return Future.succeededFuture(token);
+        })
+        .recover(e -> HttpClientUtil.errorManagement(e, "Failed to log in the system user of tenant " + tenantId));
+  }
+
+  private static class CachedToken {
+
+    private final String token;
+    private final long expires;
+
+    CachedToken(String token, long expires) {
+      this.token = token;
+      this.expires = expires;
+    }
+  }
+}
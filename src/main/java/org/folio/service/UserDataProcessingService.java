@@ -24,6 +24,7 @@ import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
 import org.folio.model.UserImportData;
+import org.folio.model.UserSystemData;
 import org.folio.model.exception.CustomFieldMappingFailedException;
 import org.folio.model.exception.DepartmentMappingFailedException;
 import org.folio.model.exception.PatronGroupMappingFailedException;
@@ -32,14 +33,15 @@ import org.folio.rest.jaxrs.model.Address;
 import org.folio.rest.jaxrs.model.CustomField;
 import org.folio.rest.jaxrs.model.CustomFields;
 import org.folio.rest.jaxrs.model.RequestPreference;
-import org.folio.rest.jaxrs.model.SelectFieldOption;
 import org.folio.rest.jaxrs.model.User;
+import org.folio.util.JsonObjectUtil;
 
 public class UserDataProcessingService {
 
   private static final Logger LOGGER = LogManager.getLogger(UserDataProcessingService.class);
 
   private static final Map<String, String> preferredContactTypeIds = new CaseInsensitiveMap<>();
+  private static final Set<String> RECORD_METADATA_FIELDS = Set.of("metadata", "createdDate", "updatedDate");
 
   static {
     preferredContactTypeIds.put("mail", "001");
@@ -49,16 +51,6 @@ public class UserDataProcessingService {
     preferredContactTypeIds.put("mobile", "005");
   }
 
-  private final CustomFieldsService customFieldsService;
-  private final DepartmentsService departmentService;
-
-
-  public UserDataProcessingService(DepartmentsService departmentService,
-      CustomFieldsService customFieldsService) {
-    this.departmentService = departmentService;
-    this.customFieldsService = customFieldsService;
-  }
-
   public Map<String, User> extractExistingUsers(List<Map> existingUserList) throws UserMappingFailedException {
     Map<String, User> existingUsers = new HashMap<>();
     for (Map existingUser : existingUserList) {
@@ -76,6 +68,22 @@ public class UserDataProcessingService {
     return existingUsers;
   }
 
+  /**
+   * Check whether the mapped incoming user would leave the existing record as it is.
+   */
+  public boolean isUnchanged(User user, User existingUser) {
+    return isSameRecord(JsonObject.mapFrom(user), JsonObject.mapFrom(existingUser));
+  }
+
+  public boolean isUnchanged(RequestPreference preference, RequestPreference existingPreference) {
+    return isSameRecord(JsonObject.mapFrom(preference), JsonObject.mapFrom(existingPreference));
+  }
+
+  private boolean isSameRecord(JsonObject incoming, JsonObject existing) {
+    return JsonObjectUtil.withoutEmptyValues(incoming, RECORD_METADATA_FIELDS)
+      .equals(JsonObjectUtil.withoutEmptyValues(existing, RECORD_METADATA_FIELDS));
+  }
+
   public void updateUserData(User user, UserImportData userImportData) {
     if (StringUtils.isNotEmpty(userImportData.getSourceType())) {
       user.setExternalSystemId(userImportData.getSourceType() + "_" + user.getExternalSystemId());
@@ -186,12 +194,12 @@ public class UserDataProcessingService {
   private void setDepartments(User user, UserImportData userImportData) {
     var departments = user.getDepartments();
     if (CollectionUtils.isNotEmpty(departments)) {
-      var systemDepartments = userImportData.getSystemData().getDepartments();
+      var systemData = userImportData.getSystemData();
       Set<String> departmentIds = new HashSet<>();
       Set<String> missedDepartmentNames = new TreeSet<>();
 
       for (String departmentName : departments) {
-        departmentService.findDepartmentByName(systemDepartments, departmentName)
+        systemData.findDepartmentByName(departmentName)
           .ifPresentOrElse(department -> departmentIds.add(department.getId()),
             () -> missedDepartmentNames.add(departmentName)
           );
@@ -209,16 +217,16 @@ public class UserDataProcessingService {
     CustomFields customFields = user.getCustomFields();
     if (customFields == null)
       return;
-    var systemCustomFields = userImportData.getSystemData().getCustomFields();
+    var systemData = userImportData.getSystemData();
     var userCustomFields = customFields.getAdditionalProperties();
 
     Set<String> missingCustomFieldsRefIds = new TreeSet<>();
     Map<String, Set<String>> missingOptions = new TreeMap<>();
     userCustomFields.entrySet().forEach(customFieldEntry -> {
         String refId = customFieldEntry.getKey();
-        customFieldsService.findCustomFieldByRefId(systemCustomFields, refId)
+        systemData.findCustomFieldByRefId(refId)
           .ifPresentOrElse(customFieldDefinition ->
-              setOptionIds(userCustomFields, customFieldDefinition, customFieldEntry, missingOptions),
+              setOptionIds(userCustomFields, customFieldDefinition, customFieldEntry, systemData, missingOptions),
             () -> missingCustomFieldsRefIds.add(refId)
           );
       }
@@ -231,32 +239,30 @@ public class UserDataProcessingService {
   }
 
   private void setOptionIds(Map<String, Object> userCustomFields, CustomField definition,
-                                   Map.Entry<String, Object> customFieldEntry,
+                                   Map.Entry<String, Object> customFieldEntry, UserSystemData systemData,
                                    Map<String, Set<String>> missingOptions) {
     if (isSelectableField(definition)) {
       String refId = customFieldEntry.getKey();
       Object value = customFieldEntry.getValue();
       if (value instanceof String) {
-        setOptionId(value, refId, definition, opt -> userCustomFields.put(refId, opt.getId()), missingOptions);
+        setOptionId(value, refId, systemData, optId -> userCustomFields.put(refId, optId), missingOptions);
       } else if (value instanceof List) {
         @SuppressWarnings("unchecked")
         List<String> values = (List<String>) value;
         List<String> optIds = new ArrayList<>();
         for (String v : values) {
-          setOptionId(v, refId, definition, opt -> optIds.add(opt.getId()), missingOptions);
+          setOptionId(v, refId, systemData, optIds::add, missingOptions);
         }
         userCustomFields.put(refId, optIds);
       }
     }
   }
 
-  private void setOptionId(Object value, String refId, CustomField definition,
-                                  Consumer<SelectFieldOption> optionConsumer,
+  private void setOptionId(Object value, String refId, UserSystemData systemData,
+                                  Consumer<String> optionIdConsumer,
                                   Map<String, Set<String>> missingOptions) {
-    definition.getSelectField().getOptions().getValues().stream()
-      .filter(opt -> opt.getValue().equals(value))
-      .findFirst()
-      .ifPresentOrElse(optionConsumer, () -> getEntrySet(missingOptions, refId).add((String) value)
+    systemData.findOptionId(refId, value)
+      .ifPresentOrElse(optionIdConsumer, () -> getEntrySet(missingOptions, refId).add((String) value)
       );
   }
 
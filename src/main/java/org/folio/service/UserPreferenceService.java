@@ -2,23 +2,35 @@ package org.folio.service;
 
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_CREATE_USER_PREFERENCE;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_DELETE_USER_PREFERENCE;
+import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_GET_USER_PREFERENCES;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_TO_UPDATE_USER_PREFERENCE;
 import static org.folio.rest.impl.UserImportAPIConstants.FAILED_USER_PREFERENCE_VALIDATION;
 import static org.folio.rest.impl.UserImportAPIConstants.REQUEST_PREFERENCES_ENDPOINT;
 import static org.folio.rest.impl.UserImportAPIConstants.REQUEST_PREFERENCES_SEARCH_QUERY_ENDPOINT;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.validation.ValidationException;
+import javax.ws.rs.core.UriBuilder;
 
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.Future;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.predicate.ResponsePredicate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.folio.model.UserImportData;
+import org.folio.model.exception.HttpStatusException;
 import org.folio.rest.jaxrs.model.RequestPreference;
 import org.folio.rest.jaxrs.model.User;
 import org.folio.rest.validator.UserRequestManagerValidator;
@@ -29,14 +41,70 @@ public class UserPreferenceService {
   public static final String REQUEST_PREFERENCES_ARRAY_KEY = "requestPreferences";
   private static final Logger LOGGER = LogManager.getLogger(UserPreferenceService.class);
 
-  public Future<RequestPreference> get(Map<String, String> okapiHeaders, String userId) {
-    String query = String.format(REQUEST_PREFERENCES_SEARCH_QUERY_ENDPOINT, "?query=userId==" + userId);
+  // "/request-preference-storage/request-preference?query=userId%3D%3D%28" + "%29&limit=..."
+  private static final int QUERY_OVERHEAD = 90;
+  // " or " encoded as "%20or%20" at most
+  private static final int SEPARATOR_LENGTH = 8;
+
+  /**
+   * Get the request preferences of several users, with one request per chunk of users whose
+   * encoded query fits into maxQueryLength. A failed lookup fails the returned future, only a
+   * missing preference storage means that the users have no preferences.
+   *
+   * @return the preferences by user id, users without a preference are missing
+   */
+  public Future<Map<String, RequestPreference>> getByUserIds(Map<String, String> okapiHeaders,
+      Collection<String> userIds, int maxQueryLength) {
+
+    Map<String, RequestPreference> preferences = new HashMap<>();
+    Future<Void> future = Future.succeededFuture();
+    for (List<String> chunk : splitByQueryLength(userIds, maxQueryLength)) {
+      future = future.compose(v -> getChunk(okapiHeaders, chunk).onSuccess(preferences::putAll).mapEmpty());
+    }
+    return future.map(v -> preferences);
+  }
+
+  private Future<Map<String, RequestPreference>> getChunk(Map<String, String> okapiHeaders, List<String> userIds) {
+    String query = UriBuilder.fromPath(REQUEST_PREFERENCES_ENDPOINT)
+        .queryParam("query", "userId==(" + String.join(" or ", userIds) + ")")
+        .queryParam("limit", userIds.size())
+        .build().toString();
     return HttpClientUtil.getRequestOkapi(HttpMethod.GET, okapiHeaders, query)
-        .expect(ResponsePredicate.SC_OK)
         .send()
-        .map(res -> res.bodyAsJsonObject().getJsonArray(REQUEST_PREFERENCES_ARRAY_KEY)
-            .getJsonObject(0).mapTo(RequestPreference.class))
-        .otherwiseEmpty(); // if not OK, return, success null.
+        .compose(res -> {
+          if (res.statusCode() == HttpResponseStatus.NOT_FOUND.code()) {
+            return Future.succeededFuture(Collections.<String, RequestPreference>emptyMap());
+          }
+          if (res.statusCode() != HttpResponseStatus.OK.code()) {
+            return Future.failedFuture(new HttpStatusException(res.statusCode(), res.bodyAsString()));
+          }
+          return Future.succeededFuture(extractPreferences(res.bodyAsJsonObject()));
+        })
+        .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_GET_USER_PREFERENCES));
+  }
+
+  /**
+   * Split the user ids into chunks whose {@code userId==(a or b ...)} query is at most
+   * maxQueryLength long when encoded. A chunk has at least one id.
+   */
+  static List<List<String>> splitByQueryLength(Collection<String> userIds, int maxQueryLength) {
+    List<List<String>> chunks = new ArrayList<>();
+    List<String> chunk = new ArrayList<>();
+    int length = QUERY_OVERHEAD;
+    for (String userId : userIds) {
+      int idLength = URLEncoder.encode(userId, StandardCharsets.UTF_8).length() + SEPARATOR_LENGTH;
+      if (!chunk.isEmpty() && length + idLength > maxQueryLength) {
+        chunks.add(chunk);
+        chunk = new ArrayList<>();
+        length = QUERY_OVERHEAD;
+      }
+      chunk.add(userId);
+      length += idLength;
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
   }
 
   public Future<Void> update(Map<String, String> okapiHeaders, RequestPreference entity) {
@@ -65,6 +133,16 @@ public class UserPreferenceService {
         .recover(e -> HttpClientUtil.errorManagement(e, FAILED_TO_CREATE_USER_PREFERENCE));
   }
 
+  private Map<String, RequestPreference> extractPreferences(JsonObject result) {
+    Map<String, RequestPreference> preferences = new HashMap<>();
+    JsonArray array = result.getJsonArray(REQUEST_PREFERENCES_ARRAY_KEY);
+    for (int i = 0; array != null && i < array.size(); i++) {
+      RequestPreference preference = array.getJsonObject(i).mapTo(RequestPreference.class);
+      preferences.put(preference.getUserId(), preference);
+    }
+    return preferences;
+  }
+
   public Future<Void> validate(@NotNull RequestPreference entity, @NotNull UserImportData importData, User user) {
     try {
       UserRequestManagerValidator.validate(entity, importData, user);
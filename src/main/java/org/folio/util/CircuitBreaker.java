@@ -0,0 +1,122 @@
+package org.folio.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import io.vertx.core.Future;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.exception.CircuitBreakerOpenException;
+
+/**
+ * Circuit breaker of one endpoint of another module, e.g. {@code /users}. After
+ * {@code circuit-breaker.failure-threshold} requests in a row failed with a transient error
+ * the breaker opens and requests fail at once. After {@code circuit-breaker.reset-timeout-ms}
+ * one request is let through, if it succeeds the breaker closes again.
+ */
+public class CircuitBreaker {
+
+  private static final Logger LOGGER = LogManager.getLogger(CircuitBreaker.class);
+
+  private static final String FAILURE_THRESHOLD_SETTING = "circuit-breaker.failure-threshold";
+  private static final int DEFAULT_FAILURE_THRESHOLD = 20;
+  private static final String RESET_TIMEOUT_SETTING = "circuit-breaker.reset-timeout-ms";
+  private static final int DEFAULT_RESET_TIMEOUT_MS = 10000;
+
+  private static final Pattern ID_SEGMENT = Pattern.compile("/[0-9a-fA-F]{8}-[0-9a-fA-F-]{28}(?=/|$)");
+  private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String endpoint;
+  private final int failureThreshold;
+  private final long resetTimeout;
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger failures = new AtomicInteger();
+  private final AtomicLong openedAt = new AtomicLong();
+
+  /**
+   * Create the breaker of an endpoint, the settings are read once here and not for every request.
+   */
+  CircuitBreaker(String endpoint) {
+    this.endpoint = endpoint;
+    this.failureThreshold = ConfigUtil.getInt(FAILURE_THRESHOLD_SETTING, DEFAULT_FAILURE_THRESHOLD);
+    this.resetTimeout = ConfigUtil.getInt(RESET_TIMEOUT_SETTING, DEFAULT_RESET_TIMEOUT_MS);
+  }
+
+  /**
+   * Get the breaker of the endpoint of a request path, the query and record ids are ignored.
+   */
+  public static CircuitBreaker forPath(String path) {
+    return breakers.computeIfAbsent(getEndpoint(path), CircuitBreaker::new);
+  }
+
+  static String getEndpoint(String path) {
+    int query = path.indexOf('?');
+    String endpoint = query < 0 ? path : path.substring(0, query);
+    return ID_SEGMENT.matcher(endpoint).replaceAll("");
+  }
+
+  /**
+   * Send the request unless the breaker is open.
+   */
+  public <T> Future<T> execute(Supplier<Future<T>> request) {
+    if (!allowRequest()) {
+      return Future.failedFuture(new CircuitBreakerOpenException(endpoint));
+    }
+    return request.get()
+        .onSuccess(result -> recordSuccess())
+        .onFailure(cause -> {
+          if (RetryPolicy.isRetryable(cause)) {
+            recordFailure();
+          } else {
+            recordSuccess();
+          }
+        });
+  }
+
+  State getState() {
+    return state.get();
+  }
+
+  private boolean allowRequest() {
+    if (failureThreshold <= 0 || state.get() == State.CLOSED) {
+      return true;
+    }
+    // only the request switching to half open is let through
+    if (System.currentTimeMillis() - openedAt.get() >= resetTimeout
+        && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+      LOGGER.info("Circuit breaker for {} is half open, trying one request", endpoint);
+      return true;
+    }
+    return false;
+  }
+
+  private void recordSuccess() {
+    failures.set(0);
+    if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+      LOGGER.info("Circuit breaker for {} is closed", endpoint);
+    }
+  }
+
+  private void recordFailure() {
+    int failed = failures.incrementAndGet();
+    if (failureThreshold <= 0) {
+      return;
+    }
+    // set before opening, so a request never sees the open state with an earlier time
+    openedAt.set(System.currentTimeMillis());
+    if (state.compareAndSet(State.HALF_OPEN, State.OPEN)
+        || (failed >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN))) {
+      LOGGER.warn("Circuit breaker for {} is open after {} failures", endpoint, failed);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.folio.util;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Module settings. A setting {@code partition.concurrency} is read from the system property
+ * {@code user-import.partition.concurrency} first and then from the environment variable
+ * {@code USER_IMPORT_PARTITION_CONCURRENCY}.
+ */
+public final class ConfigUtil {
+
+  private static final Logger LOGGER = LogManager.getLogger(ConfigUtil.class);
+  private static final String PROPERTY_PREFIX = "user-import.";
+
+  private ConfigUtil() {
+  }
+
+  public static String getString(String key, String defaultValue) {
+    String value = getValue(key);
+    return StringUtils.isBlank(value) ? defaultValue : value.trim();
+  }
+
+  public static int getInt(String key, int defaultValue) {
+    return parseInt(key, getValue(key), defaultValue);
+  }
+
+  /**
+   * Read an integer setting that can be overridden per tenant, e.g.
+   * {@code user-import.partition.size.diku} takes precedence over {@code user-import.partition.size}.
+   */
+  public static int getInt(String key, String tenantId, int defaultValue) {
+    return parseInt(key, getTenantValue(key, tenantId), defaultValue);
+  }
+
+  public static boolean getBoolean(String key, boolean defaultValue) {
+    return parseBoolean(getValue(key), defaultValue);
+  }
+
+  public static boolean getBoolean(String key, String tenantId, boolean defaultValue) {
+    return parseBoolean(getTenantValue(key, tenantId), defaultValue);
+  }
+
+  private static boolean parseBoolean(String value, boolean defaultValue) {
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    return Boolean.parseBoolean(value.trim());
+  }
+
+  private static int parseInt(String key, String value, int defaultValue) {
+    if (StringUtils.isBlank(value)) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      LOGGER.warn("Invalid value '{}' for setting {}, using default {}", value, key, defaultValue);
+      return defaultValue;
+    }
+  }
+
+  private static String getTenantValue(String key, String tenantId) {
+    String value = null;
+    if (StringUtils.isNotBlank(tenantId)) {
+      value = getValue(key + "." + tenantId);
+    }
+    return value != null ? value : getValue(key);
+  }
+
+  private static String getValue(String key) {
+    String value = System.getProperty(PROPERTY_PREFIX + key);
+    if (value == null) {
+      value = System.getenv(toEnvironmentName(key));
+    }
+    return value;
+  }
+
+  private static String toEnvironmentName(String key) {
+    return StringUtils.replaceChars((PROPERTY_PREFIX + key).toUpperCase(), ".-", "__");
+  }
+}
@@ -0,0 +1,76 @@
+package org.folio.util;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import org.folio.rest.jaxrs.model.CustomField;
+
+/**
+ * Caches the id of the module providing the custom-fields interface and its custom field
+ * definitions per tenant for {@code reference-data.ttl-seconds}. The cached definitions are
+ * shared by all imports of the Vert.x instance and must not be modified.
+ */
+public class CustomFieldsCache {
+
+  private static final String CACHE_MAP_NAME = "user-import.custom-fields";
+  private static final String TTL_SETTING = "reference-data.ttl-seconds";
+  private static final int DEFAULT_TTL_SECONDS = 300;
+
+  /**
+   * @return the cached definitions of the tenant, or null if they are missing or expired
+   */
+  public Entry get(String tenantId) {
+    Entry entry = getCache().get(tenantId);
+    if (entry != null && System.currentTimeMillis() - entry.loadedAt < getTtl(tenantId)) {
+      return entry;
+    }
+    return null;
+  }
+
+  public Entry put(String tenantId, String moduleId, Set<CustomField> customFields) {
+    Entry entry = new Entry(moduleId, customFields, System.currentTimeMillis());
+    if (getTtl(tenantId) > 0) {
+      getCache().put(tenantId, entry);
+    }
+    return entry;
+  }
+
+  public void invalidate(String tenantId) {
+    getCache().remove(tenantId);
+  }
+
+  private long getTtl(String tenantId) {
+    return TimeUnit.SECONDS.toMillis(ConfigUtil.getInt(TTL_SETTING, tenantId, DEFAULT_TTL_SECONDS));
+  }
+
+  private static LocalMap<String, Entry> getCache() {
+    return Vertx.currentContext().owner().sharedData().getLocalMap(CACHE_MAP_NAME);
+  }
+
+  public static class Entry implements Shareable {
+
+    private final String moduleId;
+    private final Set<CustomField> customFields;
+    private final long loadedAt;
+
+    private Entry(String moduleId, Set<CustomField> customFields, long loadedAt) {
+      this.moduleId = moduleId;
+      this.customFields = Collections.unmodifiableSet(new HashSet<>(customFields));
+      this.loadedAt = loadedAt;
+    }
+
+    public String getModuleId() {
+      return moduleId;
+    }
+
+    public Set<CustomField> getCustomFields() {
+      return customFields;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package org.folio.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/**
+ * Serializes the work on the users with the same externalSystemId, e.g. of two imports
+ * running at the same time or of two partitions of a streamed import. The work on a user
+ * starts when the work on it that started before has completed, so the user is looked up
+ * after it was created by the other work. The locks are held by this module instance only.
+ */
+public final class ExternalSystemIdLocks {
+
+  // the completion of the work that locked a key last, the next work waits for it
+  private static final Map<String, Future<Void>> tails = new ConcurrentHashMap<>();
+
+  private ExternalSystemIdLocks() {
+  }
+
+  /**
+   * Run the work when the locks of all keys are acquired and release them when it completes.
+   * The keys are locked in their natural order so two works with overlapping keys can't wait
+   * for each other. The work runs on the context of the caller, not on the one of the work
+   * that released the last lock, so it must be called on a Vert.x context.
+   */
+  public static <T> Future<T> withLocks(Collection<String> keys, Supplier<Future<T>> work) {
+    Context context = Vertx.currentContext();
+    Promise<Void> release = Promise.promise();
+    Future<Void> acquired = Future.succeededFuture();
+    for (String key : new TreeSet<>(keys)) {
+      acquired = acquired.compose(v -> acquire(key, release.future()));
+    }
+    Promise<T> result = context.promise();
+    acquired.onComplete(ar -> context.runOnContext(v -> {
+      try {
+        work.get().onComplete(result);
+      } catch (RuntimeException e) {
+        result.fail(e);
+      }
+    }));
+    return result.future()
+        .onComplete(ar -> release.complete());
+  }
+
+  private static Future<Void> acquire(String key, Future<Void> release) {
+    Future<Void> previous = tails.put(key, release);
+    release.onComplete(ar -> tails.remove(key, release));
+    return previous == null ? Future.succeededFuture() : previous;
+  }
+
+  static int size() {
+    return tails.size();
+  }
+}
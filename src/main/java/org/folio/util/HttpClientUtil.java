@@ -1,16 +1,22 @@
 package org.folio.util;
 
-import java.util.HashMap;
 import java.util.Map;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.predicate.ErrorConverter;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+import io.vertx.ext.web.client.predicate.ResponsePredicateResult;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.folio.model.exception.HttpStatusException;
 import org.folio.okapi.common.XOkapiHeaders;
 
 public class HttpClientUtil {
@@ -18,38 +24,73 @@ public class HttpClientUtil {
   private static final Logger LOGGER =  LogManager.getLogger(HttpClientUtil.class);
   private static final int CONN_TO = 5000;
   private static final int IDLE_TO = 10000;
+  private static final ResponsePredicate NOT_TRANSIENT_ERROR = ResponsePredicate.create(
+      response -> RetryPolicy.RETRYABLE_STATUS_CODES.contains(response.statusCode())
+          ? ResponsePredicateResult.failure("Response status code " + response.statusCode())
+          : ResponsePredicateResult.success(),
+      ErrorConverter.create(result -> new HttpStatusException(result.response().statusCode(), result.message())));
+  private static final String WEB_CLIENT_KEY = HttpClientUtil.class.getName() + ".webClient";
+
+  private static final String CONNECT_TIMEOUT_SETTING = "http.connect-timeout-ms";
+  private static final String MAX_POOL_SIZE_SETTING = "http.max-pool-size";
+  private static final int DEFAULT_MAX_POOL_SIZE = 100;
+  private static final String KEEP_ALIVE_SETTING = "http.keep-alive";
+  private static final String KEEP_ALIVE_TIMEOUT_SETTING = "http.keep-alive-timeout-seconds";
+  private static final String PIPELINING_SETTING = "http.pipelining";
+  private static final String PIPELINING_LIMIT_SETTING = "http.pipelining-limit";
+  private static final String HTTP2_SETTING = "http.http2";
+  private static final String HTTP2_MAX_POOL_SIZE_SETTING = "http.http2-max-pool-size";
+  private static final String HTTP2_MULTIPLEXING_LIMIT_SETTING = "http.http2-multiplexing-limit";
 
   private HttpClientUtil() {
   }
 
-  static Map<Vertx, WebClient> clients = new HashMap<>();
-
-  private static synchronized WebClient getWebClient() {
-    Vertx vertx  = Vertx.currentContext().owner();
-    if (clients.containsKey(vertx)) {
-      return clients.get(vertx);
+  /**
+   * Get the client of the current context. Every context, e.g. the event loop of a verticle
+   * instance, has its own client and connection pool, so no lock is needed.
+   */
+  static WebClient getWebClient() {
+    Context context = Vertx.currentContext();
+    WebClient webClient = context.get(WEB_CLIENT_KEY);
+    if (webClient == null) {
+      webClient = WebClient.create(context.owner(), createWebClientOptions());
+      context.put(WEB_CLIENT_KEY, webClient);
     }
-    WebClientOptions options = new WebClientOptions()
-        .setConnectTimeout(CONN_TO)
-        .setIdleTimeout(IDLE_TO);
-
-    WebClient webClient = WebClient.create(vertx, options);
-    clients.put(vertx, webClient);
     return webClient;
   }
 
+  static WebClientOptions createWebClientOptions() {
+    WebClientOptions options = new WebClientOptions()
+        .setConnectTimeout(ConfigUtil.getInt(CONNECT_TIMEOUT_SETTING, CONN_TO))
+        .setIdleTimeout(IDLE_TO)
+        .setMaxPoolSize(ConfigUtil.getInt(MAX_POOL_SIZE_SETTING, DEFAULT_MAX_POOL_SIZE))
+        .setKeepAlive(ConfigUtil.getBoolean(KEEP_ALIVE_SETTING, HttpClientOptions.DEFAULT_KEEP_ALIVE))
+        .setKeepAliveTimeout(
+            ConfigUtil.getInt(KEEP_ALIVE_TIMEOUT_SETTING, HttpClientOptions.DEFAULT_KEEP_ALIVE_TIMEOUT))
+        .setPipelining(ConfigUtil.getBoolean(PIPELINING_SETTING, HttpClientOptions.DEFAULT_PIPELINING))
+        .setPipeliningLimit(ConfigUtil.getInt(PIPELINING_LIMIT_SETTING, HttpClientOptions.DEFAULT_PIPELINING_LIMIT));
+    if (ConfigUtil.getBoolean(HTTP2_SETTING, false)) {
+      // h2c, Okapi is called without TLS
+      options.setProtocolVersion(HttpVersion.HTTP_2)
+          .setHttp2MaxPoolSize(
+              ConfigUtil.getInt(HTTP2_MAX_POOL_SIZE_SETTING, HttpClientOptions.DEFAULT_HTTP2_MAX_POOL_SIZE))
+          .setHttp2MultiplexingLimit(ConfigUtil.getInt(HTTP2_MULTIPLEXING_LIMIT_SETTING,
+              HttpClientOptions.DEFAULT_HTTP2_MULTIPLEXING_LIMIT));
+    }
+    LOGGER.debug("HTTP client options: {}", options.toJson());
+    return options;
+  }
+
   public static <T> Future<T> errorManagement(Throwable cause, String msg) {
     LOGGER.error("{} {}", msg, cause.getMessage(), cause);
     return Future.failedFuture(msg + ": " + cause.getMessage());
   }
 
-  public static HttpRequest<Buffer> getRequestOkapi(HttpMethod method, Map<String,String> okapiHeaders, String path) {
-    HttpRequest<Buffer> bufferHttpRequest = getWebClient().requestAbs(method, okapiHeaders.get(XOkapiHeaders.URL) + path);
-    for (Map.Entry<String,String> entry : okapiHeaders.entrySet()) {
-      bufferHttpRequest.putHeader(entry.getKey(), entry.getValue());
-    }
-    // Content-Type already set by sendJsonObject
-    bufferHttpRequest.putHeader("Accept", "*/*"); // For pre RMB 32.0.0 RMB-519
-    return bufferHttpRequest;
+  public static OkapiRequest getRequestOkapi(HttpMethod method, Map<String,String> okapiHeaders, String path) {
+    OkapiHeaders headers = OkapiHeaders.of(okapiHeaders);
+    HttpRequest<Buffer> request = getWebClient().requestAbs(method, headers.get(XOkapiHeaders.URL) + path)
+        .putHeaders(headers.getForwardedHeaders())
+        .expect(NOT_TRANSIENT_ERROR);
+    return new OkapiRequest(request, path, headers);
   }
 }
@@ -0,0 +1,135 @@
+package org.folio.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import org.folio.rest.jaxrs.model.ImportResponse;
+
+/**
+ * Metrics of the import pipeline in the Prometheus format. All metrics except the retry
+ * counters are tagged by tenant. The users processed per second are the rate of
+ * {@code user_import_users_total}.
+ */
+public class ImportMetrics {
+
+  private static final String TENANT = "tenant";
+  private static final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+  private static final Map<String, AtomicInteger> inFlightPartitions = new ConcurrentHashMap<>();
+  private static final Map<String, AtomicInteger> queuedPartitions = new ConcurrentHashMap<>();
+
+  static {
+    FunctionCounter.builder("user.import.http.retries", RetryPolicy.class, c -> RetryPolicy.getRetries())
+        .description("Retried requests to other modules")
+        .register(registry);
+    FunctionCounter.builder("user.import.http.retries.rejected", RetryPolicy.class,
+            c -> RetryPolicy.getRejectedRetries())
+        .description("Retries not done because the retry budget was exhausted")
+        .register(registry);
+  }
+
+  private ImportMetrics() {
+  }
+
+  /**
+   * Count the users of a processed partition by their outcome.
+   */
+  public static void recordUsers(String tenantId, ImportResponse response) {
+    countUsers(tenantId, "created", response.getCreatedRecords());
+    countUsers(tenantId, "updated", response.getUpdatedRecords());
+    countUsers(tenantId, "unchanged", response.getUnchangedRecords());
+    countUsers(tenantId, "failed", response.getFailedRecords());
+  }
+
+  /**
+   * Record the latency of one attempt of a request to another module.
+   *
+   * @param endpoint the path of the request without query and record ids
+   * @param outcome the status code of the response, or {@code error} if there is none
+   */
+  public static void recordRequest(String tenantId, String endpoint, String method, String outcome, long nanos) {
+    Timer.builder("user.import.http.requests")
+        .description("Latency of the requests to other modules")
+        .tag(TENANT, tenantId)
+        .tag("endpoint", endpoint)
+        .tag("method", method)
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Record how long loading reference data, e.g. patron groups, took.
+   */
+  public static void recordReferenceDataLoad(String tenantId, String name, long nanos) {
+    Timer.builder("user.import.reference.data.load")
+        .description("Load time of reference data")
+        .tag(TENANT, tenantId)
+        .tag("name", name)
+        .register(registry)
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public static void partitionStarted(String tenantId) {
+    getInFlightPartitions(tenantId).incrementAndGet();
+  }
+
+  public static void partitionCompleted(String tenantId) {
+    getInFlightPartitions(tenantId).decrementAndGet();
+  }
+
+  /**
+   * Add the change of the queue depth of a partition scheduler to the partitions of the tenant
+   * waiting for a free slot.
+   */
+  public static void partitionsQueued(String tenantId, int delta) {
+    getPartitions(queuedPartitions, "user.import.partitions.queued", "Partitions of users waiting to be processed",
+        tenantId).addAndGet(delta);
+  }
+
+  /**
+   * @return the metrics in the Prometheus text format
+   */
+  public static String scrape() {
+    return registry.scrape();
+  }
+
+  private static void countUsers(String tenantId, String status, Integer count) {
+    if (count == null || count == 0) {
+      return;
+    }
+    Counter.builder("user.import.users")
+        .description("Imported users by outcome")
+        .tag(TENANT, tenantId)
+        .tag("status", status)
+        .register(registry)
+        .increment(count);
+  }
+
+  private static AtomicInteger getInFlightPartitions(String tenantId) {
+    return getPartitions(inFlightPartitions, "user.import.partitions.in.flight",
+        "Partitions of users currently processed", tenantId);
+  }
+
+  private static AtomicInteger getPartitions(Map<String, AtomicInteger> gauges, String name, String description,
+      String tenantId) {
+
+    return gauges.computeIfAbsent(tenantId, key -> {
+      AtomicInteger partitions = new AtomicInteger();
+      Gauge.builder(name, partitions, AtomicInteger::get)
+          .description(description)
+          .tag(TENANT, key)
+          .register(registry);
+      return partitions;
+    });
+  }
+}
@@ -2,6 +2,7 @@ package org.folio.util;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -19,4 +20,35 @@ public class JsonObjectUtil {
     }
     return resultMap;
   }
+
+  /**
+   * Copy a record without the given top level fields and without null values, empty
+   * arrays and empty objects, so that records can be compared regardless of how absent
+   * values are represented.
+   */
+  public static JsonObject withoutEmptyValues(JsonObject record, Set<String> ignoredFields) {
+    JsonObject result = new JsonObject();
+    record.forEach(entry -> {
+      if (!ignoredFields.contains(entry.getKey())) {
+        Object value = withoutEmptyValues(entry.getValue());
+        if (value != null) {
+          result.put(entry.getKey(), value);
+        }
+      }
+    });
+    return result;
+  }
+
+  private static Object withoutEmptyValues(Object value) {
+    if (value instanceof JsonObject) {
+      JsonObject object = withoutEmptyValues((JsonObject) value, Set.of());
+      return object.isEmpty() ? null : object;
+    }
+    if (value instanceof JsonArray) {
+      JsonArray array = new JsonArray();
+      ((JsonArray) value).forEach(item -> array.add(withoutEmptyValues(item)));
+      return array.isEmpty() ? null : array;
+    }
+    return value;
+  }
 }
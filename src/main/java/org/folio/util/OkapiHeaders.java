@@ -0,0 +1,103 @@
+package org.folio.util;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.MultiMap;
+import org.apache.commons.collections4.map.CaseInsensitiveMap;
+
+import org.folio.okapi.common.XOkapiHeaders;
+
+/**
+ * The Okapi headers of one import. The headers forwarded to other modules are filtered and
+ * built once when the import starts instead of for every request. The headers can't be changed.
+ * Every attempt of a request sent with them is counted, also by the headers derived with
+ * {@link #with(String, String)}.
+ */
+public final class OkapiHeaders extends AbstractMap<String, String> {
+
+  private static final Set<String> FORWARDED_HEADERS = Set.of(
+      XOkapiHeaders.TENANT.toLowerCase(),
+      XOkapiHeaders.TOKEN.toLowerCase(),
+      XOkapiHeaders.USER_ID.toLowerCase(),
+      XOkapiHeaders.REQUEST_ID.toLowerCase(),
+      XOkapiHeaders.MODULE_ID.toLowerCase());
+
+  private final Map<String, String> headers;
+  private final MultiMap forwardedHeaders;
+  private final AtomicInteger requestCount;
+
+  private OkapiHeaders(Map<String, String> okapiHeaders, AtomicInteger requestCount) {
+    this.headers = Collections.unmodifiableMap(new CaseInsensitiveMap<>(okapiHeaders));
+    this.forwardedHeaders = new ReadOnlyMultiMap(createForwardedHeaders(okapiHeaders));
+    this.requestCount = requestCount;
+  }
+
+  public static OkapiHeaders of(Map<String, String> okapiHeaders) {
+    if (okapiHeaders instanceof OkapiHeaders) {
+      return (OkapiHeaders) okapiHeaders;
+    }
+    return new OkapiHeaders(okapiHeaders, new AtomicInteger());
+  }
+
+  /**
+   * @return a copy of the headers with a header set, the requests sent with the copy are
+   * counted by these headers
+   */
+  public OkapiHeaders with(String name, String value) {
+    Map<String, String> okapiHeaders = new CaseInsensitiveMap<>(headers);
+    okapiHeaders.put(name, value);
+    return new OkapiHeaders(okapiHeaders, requestCount);
+  }
+
+  /**
+   * @return the headers to send with every request to another module, they can't be changed
+   */
+  public MultiMap getForwardedHeaders() {
+    return forwardedHeaders;
+  }
+
+  /**
+   * @return the number of requests to other modules sent with these headers
+   */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  void requestSent() {
+    requestCount.incrementAndGet();
+  }
+
+  /**
+   * Filter the headers to send to other modules.
+   */
+  public static MultiMap createForwardedHeaders(Map<String, String> okapiHeaders) {
+    MultiMap forwarded = MultiMap.caseInsensitiveMultiMap();
+    for (Map.Entry<String, String> entry : okapiHeaders.entrySet()) {
+      if (entry.getValue() != null && FORWARDED_HEADERS.contains(entry.getKey().toLowerCase())) {
+        forwarded.set(entry.getKey(), entry.getValue());
+      }
+    }
+    // Content-Type already set by sendJsonObject
+    forwarded.set("Accept", "*/*"); // For pre RMB 32.0.0 RMB-519
+    return forwarded;
+  }
+
+  @Override
+  public String get(Object key) {
+    return headers.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return headers.containsKey(key);
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return headers.entrySet();
+  }
+}
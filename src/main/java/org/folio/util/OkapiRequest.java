@@ -0,0 +1,90 @@
+package org.folio.util;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.predicate.ResponsePredicate;
+
+import org.folio.model.exception.HttpStatusException;
+import org.folio.rest.tools.utils.TenantTool;
+
+/**
+ * A request to another module through Okapi. GET, PUT and DELETE requests are retried by the
+ * {@link RetryPolicy}, a POST only if it is marked as {@link #idempotent()}. Every attempt goes
+ * through the {@link CircuitBreaker} of the endpoint, is counted by the {@link OkapiHeaders} and
+ * its latency is recorded in the {@link ImportMetrics}.
+ */
+public class OkapiRequest {
+
+  private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.PUT,
+      HttpMethod.DELETE, HttpMethod.HEAD);
+
+  private final HttpRequest<Buffer> request;
+  private final CircuitBreaker circuitBreaker;
+  private final OkapiHeaders okapiHeaders;
+  private final String tenantId;
+  private final String endpoint;
+  private boolean retryable;
+
+  OkapiRequest(HttpRequest<Buffer> request, String path, OkapiHeaders okapiHeaders) {
+    this.request = request;
+    this.circuitBreaker = CircuitBreaker.forPath(path);
+    this.okapiHeaders = okapiHeaders;
+    this.tenantId = TenantTool.tenantId(okapiHeaders);
+    this.endpoint = CircuitBreaker.getEndpoint(path);
+    this.retryable = IDEMPOTENT_METHODS.contains(request.method());
+  }
+
+  public OkapiRequest expect(ResponsePredicate predicate) {
+    request.expect(predicate);
+    return this;
+  }
+
+  /**
+   * Allow retrying the request although its method is not idempotent, only for a POST that
+   * creates a record with an id chosen by the client.
+   */
+  public OkapiRequest idempotent() {
+    retryable = true;
+    return this;
+  }
+
+  public Future<HttpResponse<Buffer>> send() {
+    return execute(request::send);
+  }
+
+  public Future<HttpResponse<Buffer>> sendJson(Object body) {
+    return execute(() -> request.sendJson(body));
+  }
+
+  public Future<HttpResponse<Buffer>> sendJsonObject(JsonObject body) {
+    return execute(() -> request.sendJsonObject(body));
+  }
+
+  private Future<HttpResponse<Buffer>> execute(Supplier<Future<HttpResponse<Buffer>>> send) {
+    Supplier<Future<HttpResponse<Buffer>>> attempt = () -> circuitBreaker.execute(() -> timed(send));
+    return retryable ? RetryPolicy.execute(attempt) : attempt.get();
+  }
+
+  private Future<HttpResponse<Buffer>> timed(Supplier<Future<HttpResponse<Buffer>>> send) {
+    okapiHeaders.requestSent();
+    long start = System.nanoTime();
+    return send.get().onComplete(ar -> {
+      String outcome;
+      if (ar.succeeded()) {
+        outcome = String.valueOf(ar.result().statusCode());
+      } else if (ar.cause() instanceof HttpStatusException) {
+        outcome = String.valueOf(((HttpStatusException) ar.cause()).getStatusCode());
+      } else {
+        outcome = "error";
+      }
+      ImportMetrics.recordRequest(tenantId, endpoint, request.method().name(), outcome, System.nanoTime() - start);
+    });
+  }
+}
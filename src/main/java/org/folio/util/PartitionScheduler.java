@@ -0,0 +1,212 @@
+package org.folio.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Runs partitions with a bounded number of them in flight. Submitted partitions are queued and
+ * the next one is started as soon as a running one completes.
+ *
+ * <p>Not thread safe, all calls must be made on the Vert.x context of the import.
+ */
+public class PartitionScheduler<T, R> {
+
+  private static final Logger LOGGER = LogManager.getLogger(PartitionScheduler.class);
+
+  private final int maxInFlight;
+  private final Function<T, Future<R>> processor;
+  private final IntConsumer queueDepthListener;
+  private final Deque<PendingPartition<T, R>> queue = new ArrayDeque<>();
+  private Iterator<T> source;
+  private IntSupplier sourceRemaining;
+  private List<Future<R>> sourceFutures;
+  private Promise<List<R>> sourcePromise;
+  private int sourceInFlight;
+  private int inFlight;
+  private boolean draining;
+  private int reportedQueueDepth;
+
+  public PartitionScheduler(int maxInFlight, Function<T, Future<R>> processor) {
+    this(maxInFlight, processor, delta -> { });
+  }
+
+  /**
+   * @param queueDepthListener called with the change of the queue depth whenever it changed
+   */
+  public PartitionScheduler(int maxInFlight, Function<T, Future<R>> processor, IntConsumer queueDepthListener) {
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.processor = processor;
+    this.queueDepthListener = queueDepthListener;
+  }
+
+  /**
+   * Queue a partition.
+   *
+   * @param partition the partition to process
+   * @return the result of the processor once the partition has been processed
+   */
+  public Future<R> submit(T partition) {
+    Promise<R> promise = Promise.promise();
+    queue.add(new PendingPartition<>(partition, promise, false));
+    drain();
+    return promise.future();
+  }
+
+  public List<Future<R>> submitAll(List<T> partitions) {
+    List<Future<R>> futures = new ArrayList<>(partitions.size());
+    for (T partition : partitions) {
+      futures.add(submit(partition));
+    }
+    return futures;
+  }
+
+  /**
+   * Process all partitions of a source. The next partition is only taken from the source
+   * when a slot is free, so the source can adapt the partitions to the results so far.
+   * No more partitions are taken after one of them has failed.
+   *
+   * @param partitions the partition source
+   * @return the results in the order the partitions were taken, or the first failure
+   */
+  public Future<List<R>> process(Iterator<T> partitions) {
+    return process(partitions, () -> 0);
+  }
+
+  /**
+   * Process all partitions of a source that knows how many partitions it has left.
+   *
+   * @param partitions the partition source
+   * @param remainingPartitions the number of partitions not taken from the source yet, an estimate is fine
+   * @return the results in the order the partitions were taken, or the first failure
+   * @see #process(Iterator)
+   */
+  public Future<List<R>> process(Iterator<T> partitions, IntSupplier remainingPartitions) {
+    Promise<List<R>> promise = Promise.promise();
+    List<Future<R>> futures = new ArrayList<>();
+    source = partitions;
+    sourceRemaining = remainingPartitions;
+    sourceFutures = futures;
+    sourcePromise = promise;
+    drain();
+    return promise.future();
+  }
+
+  /**
+   * @return number of partitions waiting for a free slot, the submitted ones and those not
+   *     taken from the source yet
+   */
+  public int getQueueDepth() {
+    if (source == null || !source.hasNext()) {
+      return queue.size();
+    }
+    return queue.size() + sourceRemaining.getAsInt();
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  private void drain() {
+    // partitions completing synchronously call back into drain, the loop picks up the freed slot
+    if (draining) {
+      return;
+    }
+    draining = true;
+    try {
+      while (inFlight < maxInFlight) {
+        if (!queue.isEmpty()) {
+          start(queue.poll());
+        } else if (source != null && source.hasNext()) {
+          Promise<R> promise = Promise.promise();
+          sourceFutures.add(promise.future());
+          sourceInFlight++;
+          start(new PendingPartition<>(source.next(), promise, true));
+        } else {
+          break;
+        }
+      }
+    } finally {
+      draining = false;
+    }
+    completeSourceIfDone();
+    reportQueueDepth();
+  }
+
+  private void reportQueueDepth() {
+    int queueDepth = getQueueDepth();
+    if (queueDepth != reportedQueueDepth) {
+      queueDepthListener.accept(queueDepth - reportedQueueDepth);
+      reportedQueueDepth = queueDepth;
+    }
+  }
+
+  private void completeSourceIfDone() {
+    if (source == null || source.hasNext() || sourceInFlight > 0) {
+      return;
+    }
+    Promise<List<R>> promise = sourcePromise;
+    List<Future<R>> futures = sourceFutures;
+    source = null;
+    sourceRemaining = null;
+    sourceFutures = null;
+    sourcePromise = null;
+    futures.stream()
+        .filter(Future::failed)
+        .findFirst()
+        .ifPresentOrElse(failed -> promise.fail(failed.cause()),
+            () -> promise.complete(futures.stream().map(Future::result).collect(Collectors.toList())));
+  }
+
+  private void start(PendingPartition<T, R> pending) {
+    inFlight++;
+    LOGGER.debug("Starting partition, in flight: {}, queue depth: {}", inFlight, getQueueDepth());
+    Future<R> result;
+    try {
+      result = processor.apply(pending.partition);
+    } catch (RuntimeException e) {
+      result = Future.failedFuture(e);
+    }
+    result.onComplete(ar -> {
+      inFlight--;
+      LOGGER.debug("Partition finished, in flight: {}, queue depth: {}", inFlight, getQueueDepth());
+      if (pending.fromSource) {
+        sourceInFlight--;
+        if (ar.failed()) {
+          source = Collections.emptyIterator();
+        }
+      }
+      pending.promise.handle(ar);
+      drain();
+    });
+  }
+
+  private static class PendingPartition<T, R> {
+
+    private final T partition;
+    private final Promise<R> promise;
+    private final boolean fromSource;
+
+    private PendingPartition(T partition, Promise<R> promise, boolean fromSource) {
+      this.partition = partition;
+      this.promise = promise;
+      this.fromSource = fromSource;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package org.folio.util;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.vertx.core.MultiMap;
+
+/**
+ * A view of a {@link MultiMap} that can't be changed, the mutators throw
+ * {@link UnsupportedOperationException}. Headers shared by all requests of an import are
+ * handed out as this view. The entries are copied once, the wrapped map must not be changed
+ * afterwards.
+ */
+final class ReadOnlyMultiMap implements MultiMap {
+
+  private static final String READ_ONLY = "The headers are read-only";
+
+  private final MultiMap delegate;
+  private final List<Map.Entry<String, String>> entries;
+
+  ReadOnlyMultiMap(MultiMap delegate) {
+    this.delegate = delegate;
+    this.entries = delegate.entries().stream()
+        .<Map.Entry<String, String>>map(entry ->
+            new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()))
+        .collect(Collectors.toUnmodifiableList());
+  }
+
+  @Override
+  public String get(CharSequence name) {
+    return delegate.get(name);
+  }
+
+  @Override
+  public String get(String name) {
+    return delegate.get(name);
+  }
+
+  @Override
+  public List<String> getAll(String name) {
+    return Collections.unmodifiableList(delegate.getAll(name));
+  }
+
+  @Override
+  public List<String> getAll(CharSequence name) {
+    return Collections.unmodifiableList(delegate.getAll(name));
+  }
+
+  @Override
+  public List<Map.Entry<String, String>> entries() {
+    return entries;
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return delegate.contains(name);
+  }
+
+  @Override
+  public boolean contains(CharSequence name) {
+    return delegate.contains(name);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return delegate.isEmpty();
+  }
+
+  @Override
+  public Set<String> names() {
+    return Collections.unmodifiableSet(delegate.names());
+  }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    return entries.iterator();
+  }
+
+  @Override
+  public MultiMap add(String name, String value) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap add(CharSequence name, CharSequence value) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap add(String name, Iterable<String> values) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap add(CharSequence name, Iterable<CharSequence> values) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap addAll(MultiMap map) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap addAll(Map<String, String> headers) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap set(String name, String value) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap set(CharSequence name, CharSequence value) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap set(String name, Iterable<String> values) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap set(CharSequence name, Iterable<CharSequence> values) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap setAll(MultiMap map) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap setAll(Map<String, String> headers) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap remove(String name) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap remove(CharSequence name) {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+
+  @Override
+  public MultiMap clear() {
+    throw new UnsupportedOperationException(READ_ONLY);
+  }
+}
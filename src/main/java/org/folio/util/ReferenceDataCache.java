@@ -0,0 +1,96 @@
+package org.folio.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.rest.tools.utils.TenantTool;
+
+/**
+ * Caches name to id maps of reference data, e.g. patron groups, per tenant for
+ * {@code reference-data.ttl-seconds}. The cache lives in the local shared data of the Vert.x
+ * instance, a TTL of 0 disables caching.
+ */
+public class ReferenceDataCache {
+
+  private static final Logger LOGGER = LogManager.getLogger(ReferenceDataCache.class);
+  private static final String CACHE_MAP_NAME = "user-import.reference-data";
+  private static final String TTL_SETTING = "reference-data.ttl-seconds";
+  private static final int DEFAULT_TTL_SECONDS = 300;
+
+  private final String name;
+
+  public ReferenceDataCache(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Get the cached reference data of the tenant, or load it if it is missing or expired.
+   */
+  public Future<Map<String, String>> get(Map<String, String> okapiHeaders,
+      Function<Map<String, String>, Future<Map<String, String>>> loader) {
+
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    CacheEntry entry = getCache().get(getKey(tenantId));
+    if (entry != null && System.currentTimeMillis() - entry.loadedAt < getTtl(tenantId)) {
+      return Future.succeededFuture(entry.values);
+    }
+    return refresh(okapiHeaders, loader);
+  }
+
+  /**
+   * Load the reference data and replace the cached copy of the tenant.
+   */
+  public Future<Map<String, String>> refresh(Map<String, String> okapiHeaders,
+      Function<Map<String, String>, Future<Map<String, String>>> loader) {
+
+    String tenantId = TenantTool.tenantId(okapiHeaders);
+    long start = System.nanoTime();
+    return loader.apply(okapiHeaders)
+        .onSuccess(values -> ImportMetrics.recordReferenceDataLoad(tenantId, name, System.nanoTime() - start))
+        .map(values -> {
+          CacheEntry entry = new CacheEntry(values, System.currentTimeMillis());
+          if (getTtl(tenantId) > 0) {
+            LOGGER.debug("Caching {} {} for tenant {}", values.size(), name, tenantId);
+            getCache().put(getKey(tenantId), entry);
+          }
+          return entry.values;
+        });
+  }
+
+  public void invalidate(String tenantId) {
+    getCache().remove(getKey(tenantId));
+  }
+
+  private String getKey(String tenantId) {
+    return tenantId + "." + name;
+  }
+
+  private long getTtl(String tenantId) {
+    return TimeUnit.SECONDS.toMillis(ConfigUtil.getInt(TTL_SETTING, tenantId, DEFAULT_TTL_SECONDS));
+  }
+
+  private static LocalMap<String, CacheEntry> getCache() {
+    return Vertx.currentContext().owner().sharedData().getLocalMap(CACHE_MAP_NAME);
+  }
+
+  private static class CacheEntry implements Shareable {
+
+    private final Map<String, String> values;
+    private final long loadedAt;
+
+    private CacheEntry(Map<String, String> values, long loadedAt) {
+      this.values = Collections.unmodifiableMap(new HashMap<>(values));
+      this.loadedAt = loadedAt;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package org.folio.util;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClosedException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.model.exception.HttpStatusException;
+
+/**
+ * Retries requests to other modules that failed with a connection error or a 502, 503 or 504
+ * status. Before a retry the request waits for an exponential backoff with full jitter. The
+ * retries of a context are limited by a budget: every request adds
+ * {@code http.retry.budget-percent} percent of a retry, up to {@code http.retry.budget-burst}
+ * retries, so a module that is down is not flooded with retries.
+ */
+public final class RetryPolicy {
+
+  private static final Logger LOGGER = LogManager.getLogger(RetryPolicy.class);
+  private static final String BUDGET_KEY = RetryPolicy.class.getName() + ".budget";
+
+  private static final String MAX_ATTEMPTS_SETTING = "http.retry.max-attempts";
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  private static final String BACKOFF_SETTING = "http.retry.backoff-ms";
+  private static final int DEFAULT_BACKOFF_MS = 100;
+  private static final String MAX_BACKOFF_SETTING = "http.retry.max-backoff-ms";
+  private static final int DEFAULT_MAX_BACKOFF_MS = 2000;
+  private static final String BUDGET_PERCENT_SETTING = "http.retry.budget-percent";
+  private static final int DEFAULT_BUDGET_PERCENT = 10;
+  private static final String BUDGET_BURST_SETTING = "http.retry.budget-burst";
+  private static final int DEFAULT_BUDGET_BURST = 10;
+
+  static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(502, 503, 504);
+
+  private static final AtomicLong retries = new AtomicLong();
+  private static final AtomicLong rejectedRetries = new AtomicLong();
+
+  private RetryPolicy() {
+  }
+
+  /**
+   * Send a request and send it again while it fails with a transient error.
+   *
+   * @param request sends the request, called once per attempt
+   */
+  public static <T> Future<T> execute(Supplier<Future<T>> request) {
+    Context context = Vertx.currentContext();
+    RetryBudget budget = getBudget(context);
+    budget.deposit();
+    Promise<T> promise = Promise.promise();
+    attempt(context, budget, request, 1, ConfigUtil.getInt(MAX_ATTEMPTS_SETTING, DEFAULT_MAX_ATTEMPTS), promise);
+    return promise.future();
+  }
+
+  /**
+   * @return the number of retries since the module started
+   */
+  public static long getRetries() {
+    return retries.get();
+  }
+
+  /**
+   * @return the number of retries that were not made because the budget was used up
+   */
+  public static long getRejectedRetries() {
+    return rejectedRetries.get();
+  }
+
+  static boolean isRetryable(Throwable cause) {
+    if (cause instanceof HttpStatusException) {
+      return RETRYABLE_STATUS_CODES.contains(((HttpStatusException) cause).getStatusCode());
+    }
+    return cause instanceof IOException || cause instanceof HttpClosedException || cause instanceof TimeoutException;
+  }
+
+  static long getBackoff(int attempt) {
+    long baseBackoff = ConfigUtil.getInt(BACKOFF_SETTING, DEFAULT_BACKOFF_MS);
+    long maxBackoff = ConfigUtil.getInt(MAX_BACKOFF_SETTING, DEFAULT_MAX_BACKOFF_MS);
+    long backoff = Math.min(maxBackoff, baseBackoff << Math.min(attempt - 1, 20));
+    return backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+  }
+
+  private static <T> void attempt(Context context, RetryBudget budget, Supplier<Future<T>> request,
+      int attempt, int maxAttempts, Promise<T> promise) {
+
+    request.get().onComplete(ar -> {
+      if (ar.succeeded() || attempt >= maxAttempts || !isRetryable(ar.cause())) {
+        promise.handle(ar);
+        return;
+      }
+      if (!budget.withdraw()) {
+        rejectedRetries.incrementAndGet();
+        LOGGER.warn("Retry budget used up, not retrying: {}", ar.cause().getMessage());
+        promise.handle(ar);
+        return;
+      }
+      retries.incrementAndGet();
+      long backoff = getBackoff(attempt);
+      LOGGER.info("Attempt {} of {} failed, retrying in {} ms: {}", attempt, maxAttempts, backoff,
+          ar.cause().getMessage());
+      if (backoff == 0) {
+        attempt(context, budget, request, attempt + 1, maxAttempts, promise);
+      } else {
+        context.owner().setTimer(backoff,
+            id -> attempt(context, budget, request, attempt + 1, maxAttempts, promise));
+      }
+    });
+  }
+
+  private static RetryBudget getBudget(Context context) {
+    RetryBudget budget = context.get(BUDGET_KEY);
+    if (budget == null) {
+      budget = new RetryBudget(ConfigUtil.getInt(BUDGET_PERCENT_SETTING, DEFAULT_BUDGET_PERCENT),
+          ConfigUtil.getInt(BUDGET_BURST_SETTING, DEFAULT_BUDGET_BURST));
+      context.put(BUDGET_KEY, budget);
+    }
+    return budget;
+  }
+
+  /**
+   * Token bucket of the retries of one context, only used on that context.
+   */
+  private static class RetryBudget {
+
+    private final double tokensPerRequest;
+    private final double maxTokens;
+    private double tokens;
+
+    private RetryBudget(int percent, int burst) {
+      this.tokensPerRequest = percent / 100.0;
+      this.maxTokens = burst;
+      this.tokens = burst;
+    }
+
+    private void deposit() {
+      tokens = Math.min(maxTokens, tokens + tokensPerRequest);
+    }
+
+    private boolean withdraw() {
+      if (tokens < 1) {
+        return false;
+      }
+      tokens--;
+      return true;
+    }
+  }
+}
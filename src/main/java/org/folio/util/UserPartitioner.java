@@ -0,0 +1,135 @@
+package org.folio.util;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.folio.rest.jaxrs.model.User;
+
+/**
+ * Splits the users of an import into partitions. Each partition is looked up with one
+ * {@code externalSystemId==(a or b ...)} query.
+ *
+ * <p>In adaptive mode the partition size is doubled as long as the lookup latency per user
+ * improves, until the maximum size or the maximum query length is reached. When the latency
+ * per user gets worse the size steps back and stays there.
+ */
+public class UserPartitioner implements Iterator<List<User>> {
+
+  private static final Logger LOGGER = LogManager.getLogger(UserPartitioner.class);
+
+  // "/users?query=externalSystemId%3D%3D%28" + "%29&limit=...&offset=0&orderBy=externalSystemId&order=asc"
+  private static final int QUERY_OVERHEAD = 120;
+  // encoded " or "
+  private static final int SEPARATOR_LENGTH = 4;
+
+  private final List<User> users;
+  private final String sourceType;
+  private final boolean adaptive;
+  private final int initialSize;
+  private final int maxSize;
+  private final int maxQueryLength;
+
+  private int position;
+  private int currentSize;
+  private double bestLatencyPerUser = -1;
+  private boolean settled;
+
+  public UserPartitioner(List<User> users, String sourceType, int partitionSize) {
+    this(users, sourceType, partitionSize, false, partitionSize, Integer.MAX_VALUE);
+  }
+
+  public UserPartitioner(List<User> users, String sourceType, int partitionSize, boolean adaptive,
+      int maxSize, int maxQueryLength) {
+
+    this.users = users;
+    this.sourceType = sourceType;
+    this.adaptive = adaptive;
+    this.initialSize = Math.max(1, partitionSize);
+    this.maxSize = Math.max(initialSize, maxSize);
+    this.maxQueryLength = maxQueryLength;
+    this.currentSize = initialSize;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return position < users.size();
+  }
+
+  @Override
+  public List<User> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    int end = Math.min(users.size(), position + currentSize);
+    if (adaptive) {
+      end = limitByQueryLength(end);
+    }
+    List<User> partition = users.subList(position, end);
+    position = end;
+    return partition;
+  }
+
+  /**
+   * Report the latency of the user lookup of a partition.
+   *
+   * @param partitionSize  the number of users looked up
+   * @param latencyMillis  the time the lookup took
+   */
+  public void recordLookup(int partitionSize, long latencyMillis) {
+    if (!adaptive || settled || partitionSize < currentSize) {
+      return;
+    }
+    double latencyPerUser = (double) Math.max(1, latencyMillis) / partitionSize;
+    if (bestLatencyPerUser < 0 || latencyPerUser <= bestLatencyPerUser) {
+      bestLatencyPerUser = latencyPerUser;
+      if (currentSize < maxSize) {
+        currentSize = Math.min(maxSize, currentSize * 2);
+        LOGGER.debug("Lookup latency improved, partition size increased to {}", currentSize);
+      } else {
+        settled = true;
+      }
+    } else {
+      currentSize = Math.max(initialSize, currentSize / 2);
+      settled = true;
+      LOGGER.debug("Lookup latency got worse, partition size settled at {}", currentSize);
+    }
+  }
+
+  public int getCurrentSize() {
+    return currentSize;
+  }
+
+  public int getRemainingUsers() {
+    return users.size() - position;
+  }
+
+  /**
+   * @return the partitions left at the current size, in adaptive mode the size may still change
+   */
+  public int getRemainingPartitions() {
+    return (getRemainingUsers() + currentSize - 1) / currentSize;
+  }
+
+  private int limitByQueryLength(int end) {
+    int length = QUERY_OVERHEAD;
+    for (int i = position; i < end; i++) {
+      length += encodedLength(users.get(i).getExternalSystemId()) + SEPARATOR_LENGTH;
+      if (length > maxQueryLength && i > position) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private int encodedLength(String externalSystemId) {
+    String value = StringUtils.isEmpty(sourceType) ? externalSystemId : sourceType + "_" + externalSystemId;
+    return URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8).length();
+  }
+}
@@ -0,0 +1,82 @@
+package org.folio;
+
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.tools.utils.Envs;
+
+/**
+ * Runs the module database in a container for the tests of the services storing data in it.
+ */
+public class PostgresTestUtils {
+
+  public static final String TENANT = "diku";
+
+  private PostgresTestUtils() {
+  }
+
+  public static PostgreSQLContainer<?> createContainer() {
+    return new PostgreSQLContainer<>("postgres:12-alpine")
+        .withUsername("username")
+        .withPassword("password")
+        .withDatabaseName("postgres");
+  }
+
+  /**
+   * Let the {@link PostgresClient} connect to the database of the container.
+   */
+  public static void configure(PostgreSQLContainer<?> postgres) {
+    Envs.setEnv(postgres.getHost(), postgres.getFirstMappedPort(), postgres.getUsername(),
+        postgres.getPassword(), postgres.getDatabaseName());
+  }
+
+  /**
+   * Create a table in the schema of the test tenant the way RMB does for schema.json.
+   */
+  public static Future<Void> createTable(Vertx vertx, String table) {
+    String schema = PostgresClient.convertToPsqlStandard(TENANT);
+    return execute(vertx, "CREATE SCHEMA IF NOT EXISTS " + schema)
+        .compose(v -> execute(vertx, "CREATE TABLE IF NOT EXISTS " + schema + "." + table
+            + " (id uuid PRIMARY KEY, jsonb jsonb NOT NULL)"))
+        .compose(v -> execute(vertx, "TRUNCATE " + schema + "." + table));
+  }
+
+  /**
+   * @return the number of rows of a table of the test tenant
+   */
+  public static Future<Integer> count(Vertx vertx, String table) {
+    return countWhere(vertx, table, "true");
+  }
+
+  /**
+   * @return the number of rows of a table of the test tenant matching the condition
+   */
+  public static Future<Integer> countWhere(Vertx vertx, String table, String condition) {
+    Promise<RowSet<Row>> promise = Promise.promise();
+    PostgresClient.getInstance(vertx).select("SELECT count(*)::int FROM "
+        + PostgresClient.convertToPsqlStandard(TENANT) + "." + table + " WHERE " + condition, promise);
+    return promise.future().map(rows -> rows.iterator().next().getInteger(0));
+  }
+
+  /**
+   * Run on a Vert.x context like an import, the services get the Vert.x instance from it.
+   */
+  public static <T> Future<T> onContext(Vertx vertx, Supplier<Future<T>> supplier) {
+    Promise<T> promise = Promise.promise();
+    vertx.getOrCreateContext().runOnContext(v -> supplier.get().onComplete(promise));
+    return promise.future();
+  }
+
+  public static Future<Void> execute(Vertx vertx, String sql) {
+    Promise<RowSet<Row>> promise = Promise.promise();
+    PostgresClient.getInstance(vertx).execute(sql, promise);
+    return promise.future().mapEmpty();
+  }
+}
@@ -11,8 +11,10 @@ public class TestUtils {
   public static final String FAILED_USERS = "failedUsers";
   public static final String FAILED_RECORDS = "failedRecords";
   public static final String UPDATED_RECORDS = "updatedRecords";
+  public static final String UNCHANGED_RECORDS = "unchangedRecords";
   public static final String CREATED_RECORDS = "createdRecords";
   public static final String TOTAL_RECORDS = "totalRecords";
+  public static final String HTTP_CALLS = "timings.httpCalls";
   public static final String EXTERNAL_SYSTEM_ID = "externalSystemId";
   public static final String USERNAME = "username";
   public static final String USER_ERROR_MESSAGE = "errorMessage";
@@ -0,0 +1,191 @@
+package org.folio.load;
+
+import static org.folio.rest.impl.UserImportAPIConstants.ADDRESS_TYPES_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.CUSTOM_FIELDS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.DEPARTMENTS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.PATRON_GROUPS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.PERMS_USERS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.REQUEST_PREFERENCES_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.SERVICE_POINTS_ENDPOINT;
+import static org.folio.rest.impl.UserImportAPIConstants.USERS_ENDPOINT;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
+
+/**
+ * Stands in for Okapi and the modules the import calls. Every response is delayed by a
+ * {@link LatencyDistribution} and fails with a 503 at the given error rate. User lookups
+ * find an existing user for the given share of the looked up externalSystemIds, all other
+ * requests succeed without storing anything.
+ */
+public class FolioStandIn extends AbstractVerticle {
+
+  static final List<String> PATRON_GROUPS = List.of("staff", "faculty", "graduate", "undergrad");
+  static final List<String> ADDRESS_TYPES = List.of("Home", "Work", "Campus");
+
+  private static final Pattern EXTERNAL_SYSTEM_IDS = Pattern.compile("externalSystemId==\\((.*)\\)");
+
+  private final int port;
+  private final LatencyDistribution latency;
+  private final double errorRate;
+  private final double existingRatio;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+
+  public FolioStandIn(int port, LatencyDistribution latency, double errorRate, double existingRatio) {
+    this.port = port;
+    this.latency = latency;
+    this.errorRate = errorRate;
+    this.existingRatio = existingRatio;
+  }
+
+  @Override
+  public void start(Promise<Void> startPromise) {
+    Router router = Router.router(vertx);
+    router.route().handler(BodyHandler.create());
+    router.get("/_/proxy/tenants/:tenant/interfaces/custom-fields")
+        .handler(ctx -> respond(ctx, 200, new JsonArray().add(new JsonObject().put("id", "mod-users-stand-in"))));
+    router.get(PATRON_GROUPS_ENDPOINT).handler(ctx -> respond(ctx, 200, referenceData("usergroups", "group",
+        PATRON_GROUPS)));
+    router.get(ADDRESS_TYPES_ENDPOINT).handler(ctx -> respond(ctx, 200, referenceData("addressTypes", "addressType",
+        ADDRESS_TYPES)));
+    router.get(SERVICE_POINTS_ENDPOINT).handler(ctx -> respond(ctx, 200, referenceData("servicepoints", "name",
+        List.of())));
+    router.get(DEPARTMENTS_ENDPOINT).handler(ctx -> respond(ctx, 200, collection("departments", new JsonArray())));
+    router.get(CUSTOM_FIELDS_ENDPOINT).handler(ctx -> respond(ctx, 200, collection("customFields", new JsonArray())));
+    router.get(USERS_ENDPOINT).handler(ctx -> respond(ctx, 200, findUsers(ctx.request().getParam("query"))));
+    router.post(USERS_ENDPOINT).handler(ctx -> respond(ctx, 201, ctx.getBodyAsJson()));
+    router.put(USERS_ENDPOINT + "/:id").handler(ctx -> respond(ctx, 204, null));
+    router.post(PERMS_USERS_ENDPOINT).handler(ctx -> respond(ctx, 201,
+        ctx.getBodyAsJson().put("id", UUID.randomUUID().toString())));
+    router.get(REQUEST_PREFERENCES_ENDPOINT).handler(ctx -> respond(ctx, 200,
+        collection("requestPreferences", new JsonArray())));
+    router.post(REQUEST_PREFERENCES_ENDPOINT).handler(ctx -> respond(ctx, 201, ctx.getBodyAsJson()));
+    router.route(REQUEST_PREFERENCES_ENDPOINT + "/:id").handler(ctx -> respond(ctx, 204, null));
+
+    vertx.createHttpServer()
+        .requestHandler(router)
+        .listen(port)
+        .<Void>mapEmpty()
+        .onComplete(startPromise);
+  }
+
+  /**
+   * @return the number of requests received so far
+   */
+  public long getRequests() {
+    return requests.get();
+  }
+
+  /**
+   * @return the number of requests failed on purpose so far
+   */
+  public long getErrors() {
+    return errors.get();
+  }
+
+  private void respond(RoutingContext ctx, int statusCode, Object body) {
+    requests.incrementAndGet();
+    boolean fail = errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    vertx.setTimer(Math.max(1, latency.nextMillis()), id -> {
+      if (fail) {
+        errors.incrementAndGet();
+        ctx.response().setStatusCode(503).end("Injected error");
+      } else if (body == null) {
+        ctx.response().setStatusCode(statusCode).end();
+      } else {
+        ctx.response().setStatusCode(statusCode)
+            .putHeader("Content-Type", "application/json")
+            .end(body instanceof JsonArray ? ((JsonArray) body).encode() : ((JsonObject) body).encode());
+      }
+    });
+  }
+
+  private JsonObject findUsers(String query) {
+    JsonArray users = new JsonArray();
+    Matcher matcher = EXTERNAL_SYSTEM_IDS.matcher(query == null ? "" : query);
+    if (matcher.find() && existingRatio > 0) {
+      for (String externalSystemId : matcher.group(1).split(" or ")) {
+        if (isExisting(externalSystemId)) {
+          users.add(existingUser(externalSystemId));
+        }
+      }
+    }
+    return collection("users", users);
+  }
+
+  private boolean isExisting(String externalSystemId) {
+    return Math.floorMod(externalSystemId.hashCode(), 1000) < existingRatio * 1000;
+  }
+
+  private static JsonObject existingUser(String externalSystemId) {
+    return new JsonObject()
+        .put("id", uuid(externalSystemId))
+        .put("externalSystemId", externalSystemId)
+        .put("username", externalSystemId)
+        .put("active", true)
+        .put("patronGroup", uuid(PATRON_GROUPS.get(0)))
+        .put("personal", new JsonObject().put("lastName", "Existing"));
+  }
+
+  private static JsonObject referenceData(String arrayKey, String nameKey, List<String> names) {
+    JsonArray records = new JsonArray();
+    names.forEach(name -> records.add(new JsonObject().put("id", uuid(name)).put(nameKey, name)));
+    return collection(arrayKey, records);
+  }
+
+  private static JsonObject collection(String arrayKey, JsonArray records) {
+    return new JsonObject().put(arrayKey, records).put("totalRecords", records.size());
+  }
+
+  private static String uuid(String name) {
+    return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  /**
+   * The delay of the responses in milliseconds.
+   */
+  @FunctionalInterface
+  public interface LatencyDistribution {
+
+    long nextMillis();
+
+    /**
+     * Parse {@code fixed:<ms>}, {@code uniform:<min ms>:<max ms>} or {@code lognormal:<median ms>:<sigma>}.
+     * A log-normal distribution with a sigma of 0.5 to 1 resembles the latency of real services.
+     */
+    static LatencyDistribution parse(String spec) {
+      String[] parts = spec.split(":");
+      Function<Integer, Double> arg = i -> Double.parseDouble(parts[i]);
+      switch (parts[0]) {
+        case "fixed":
+          long fixed = arg.apply(1).longValue();
+          return () -> fixed;
+        case "uniform":
+          long min = arg.apply(1).longValue();
+          long max = arg.apply(2).longValue();
+          return () -> ThreadLocalRandom.current().nextLong(min, max + 1);
+        case "lognormal":
+          double mu = Math.log(arg.apply(1));
+          double sigma = arg.apply(2);
+          return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        default:
+          throw new IllegalArgumentException("Unknown latency distribution " + spec);
+      }
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package org.folio.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.RestVerticle;
+import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.util.ImportMetrics;
+
+/**
+ * Runs the module against the {@link FolioStandIn} and imports generated users with one
+ * {@code POST /user-import} per import size. For every size the users per second, the p99
+ * latency of the requests of the module to the stand-in, the peak heap and the number of
+ * requests are printed and written to {@code target/load-test-results.json}.
+ *
+ * <p>Settings, as system properties:
+ * <ul>
+ * <li>{@code load.users}: comma separated import sizes, default 1000,10000</li>
+ * <li>{@code load.latency}: latency distribution of the stand-in, default lognormal:5:0.5,
+ * see {@link FolioStandIn.LatencyDistribution#parse(String)}</li>
+ * <li>{@code load.error-rate}: share of requests failing with a 503, default 0</li>
+ * <li>{@code load.existing-ratio}: share of the users that already exist and are updated, default 0</li>
+ * </ul>
+ * The settings of the module, e.g. {@code user-import.partition.concurrency}, are passed as usual.
+ */
+public class UserImportLoadHarness {
+
+  private static final String TENANT = "diku";
+  private static final Pattern HISTOGRAM_BUCKET =
+      Pattern.compile("^user_import_http_requests_seconds_bucket\\{.*le=\"([^\"]+)\",.*} ([0-9.E+-]+)$");
+
+  public static void main(String[] args) throws Exception {
+    List<Integer> sizes = new ArrayList<>();
+    for (String size : System.getProperty("load.users", "1000,10000").split(",")) {
+      sizes.add(Integer.parseInt(size.trim()));
+    }
+    String latency = System.getProperty("load.latency", "lognormal:5:0.5");
+    double errorRate = Double.parseDouble(System.getProperty("load.error-rate", "0"));
+    double existingRatio = Double.parseDouble(System.getProperty("load.existing-ratio", "0"));
+
+    int modulePort = NetworkUtils.nextFreePort();
+    int standInPort = NetworkUtils.nextFreePort();
+    Vertx vertx = Vertx.vertx();
+    FolioStandIn standIn = new FolioStandIn(standInPort, FolioStandIn.LatencyDistribution.parse(latency),
+        errorRate, existingRatio);
+    vertx.deployVerticle(standIn)
+        .compose(x -> vertx.deployVerticle(new RestVerticle(),
+            new DeploymentOptions().setConfig(new JsonObject().put("http.port", modulePort))))
+        .toCompletionStage().toCompletableFuture().get(1, TimeUnit.MINUTES);
+
+    WebClient client = WebClient.create(vertx);
+    JsonArray results = new JsonArray();
+    System.out.printf("latency=%s error-rate=%s existing-ratio=%s%n", latency, errorRate, existingRatio);
+    System.out.printf("%10s %12s %10s %12s %12s %10s %8s%n",
+        "users", "users/sec", "p99 ms", "peak heap MB", "http calls", "stand-in", "failed");
+    for (int size : sizes) {
+      JsonObject result = runImport(vertx, client, modulePort, standInPort, standIn, size);
+      results.add(result);
+      System.out.printf("%10d %12.1f %10.1f %12d %12d %10d %8d%n",
+          size, result.getDouble("usersPerSecond"), result.getDouble("p99LatencyMs"),
+          result.getLong("peakHeapMb"), result.getLong("httpCalls"), result.getLong("standInRequests"),
+          result.getLong("failedRecords"));
+    }
+
+    Path output = Path.of("target", "load-test-results.json");
+    Files.createDirectories(output.getParent());
+    Files.writeString(output, new JsonObject()
+        .put("latency", latency)
+        .put("errorRate", errorRate)
+        .put("existingRatio", existingRatio)
+        .put("results", results)
+        .encodePrettily());
+    vertx.close().toCompletionStage().toCompletableFuture().get(1, TimeUnit.MINUTES);
+  }
+
+  private static JsonObject runImport(Vertx vertx, WebClient client, int modulePort, int standInPort,
+      FolioStandIn standIn, int size) throws Exception {
+
+    Buffer body = createImport(size).toBuffer();
+    Map<Double, Double> bucketsBefore = getLatencyBuckets();
+    long requestsBefore = standIn.getRequests();
+    System.gc();
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+        heapPools.add(pool);
+      }
+    }
+
+    long start = System.nanoTime();
+    HttpResponse<Buffer> response = client.post(modulePort, "localhost", "/user-import")
+        .putHeader(XOkapiHeaders.TENANT, TENANT)
+        .putHeader(XOkapiHeaders.TOKEN, "load-test")
+        .putHeader(XOkapiHeaders.URL, "http://localhost:" + standInPort)
+        .putHeader("Content-Type", "application/json")
+        .sendBuffer(body)
+        .toCompletionStage().toCompletableFuture().get(2, TimeUnit.HOURS);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    JsonObject importResponse = response.bodyAsJsonObject();
+    if (response.statusCode() != 200 || importResponse == null) {
+      throw new IllegalStateException("Import of " + size + " users failed with " + response.statusCode()
+          + ": " + response.bodyAsString());
+    }
+    JsonObject timings = importResponse.getJsonObject("timings", new JsonObject());
+    return new JsonObject()
+        .put("users", size)
+        .put("seconds", seconds)
+        .put("usersPerSecond", size / seconds)
+        .put("p99LatencyMs", getP99Millis(bucketsBefore, getLatencyBuckets()))
+        .put("peakHeapMb", peakHeap / (1024 * 1024))
+        .put("httpCalls", timings.getInteger("httpCalls", 0))
+        .put("standInRequests", standIn.getRequests() - requestsBefore)
+        .put("createdRecords", importResponse.getInteger("createdRecords"))
+        .put("updatedRecords", importResponse.getInteger("updatedRecords"))
+        .put("failedRecords", importResponse.getInteger("failedRecords"))
+        .put("timings", timings);
+  }
+
+  private static JsonObject createImport(int size) {
+    JsonArray users = new JsonArray();
+    for (int i = 0; i < size; i++) {
+      String username = "load_" + i;
+      JsonArray addresses = new JsonArray();
+      for (String addressType : FolioStandIn.ADDRESS_TYPES) {
+        addresses.add(new JsonObject()
+            .put("addressTypeId", addressType)
+            .put("addressLine1", i + " Main Street")
+            .put("city", "Springfield")
+            .put("postalCode", String.format("%05d", i % 100000))
+            .put("countryId", "US"));
+      }
+      users.add(new JsonObject()
+          .put("username", username)
+          .put("externalSystemId", username)
+          .put("barcode", String.valueOf(1000000 + i))
+          .put("active", true)
+          .put("patronGroup", FolioStandIn.PATRON_GROUPS.get(i % FolioStandIn.PATRON_GROUPS.size()))
+          .put("personal", new JsonObject()
+              .put("firstName", "First" + i)
+              .put("lastName", "Last" + i)
+              .put("email", username + "@example.org")
+              .put("preferredContactTypeId", "email")
+              .put("addresses", addresses)));
+    }
+    return new JsonObject()
+        .put("users", users)
+        .put("totalRecords", size);
+  }
+
+  /**
+   * Sum up the buckets of the latency histograms of all endpoints from the scraped metrics.
+   */
+  private static Map<Double, Double> getLatencyBuckets() {
+    Map<Double, Double> buckets = new TreeMap<>();
+    for (String line : ImportMetrics.scrape().split("\n")) {
+      Matcher matcher = HISTOGRAM_BUCKET.matcher(line);
+      if (matcher.matches()) {
+        double le = "+Inf".equals(matcher.group(1)) ? Double.POSITIVE_INFINITY : Double.parseDouble(matcher.group(1));
+        buckets.merge(le, Double.parseDouble(matcher.group(2)), Double::sum);
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * @return the upper bound of the histogram bucket containing the p99 of the requests of one import
+   */
+  private static double getP99Millis(Map<Double, Double> before, Map<Double, Double> after) {
+    double total = after.getOrDefault(Double.POSITIVE_INFINITY, 0.0)
+        - before.getOrDefault(Double.POSITIVE_INFINITY, 0.0);
+    if (total == 0) {
+      return 0;
+    }
+    for (Map.Entry<Double, Double> bucket : after.entrySet()) {
+      double count = bucket.getValue() - before.getOrDefault(bucket.getKey(), 0.0);
+      if (count >= total * 0.99) {
+        return bucket.getKey() * 1000;
+      }
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+}
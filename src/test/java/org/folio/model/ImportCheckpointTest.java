@@ -0,0 +1,93 @@
+package org.folio.model;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.service.ImportCheckpointService;
+
+public class ImportCheckpointTest {
+
+  @Test
+  public void committedUsersAreSkipped() {
+    ImportCheckpoint checkpoint = new ImportCheckpoint("import", List.of(
+        partition(List.of("1", "2"), 1, 1, 0),
+        partition(List.of("4"), 0, 0, 1)));
+    List<User> users = List.of(user("1"), user("2"), user("3"), user("4"), user("5"));
+
+    List<User> remaining = checkpoint.withoutCommitted(users);
+
+    assertThat(checkpoint.getCommittedRecords(), is(3));
+    assertThat(remaining, contains(users.get(2), users.get(4)));
+  }
+
+  @Test
+  public void committedRecordsAreAddedToTheResponse() {
+    ImportCheckpoint checkpoint = new ImportCheckpoint("import", List.of(
+        partition(List.of("1", "2", "3"), 2, 1, 0),
+        partition(List.of("4"), 0, 0, 1)));
+    ImportResponse response = new ImportResponse()
+        .withTotalRecords(3)
+        .withCreatedRecords(1)
+        .withUpdatedRecords(1)
+        .withUnchangedRecords(0)
+        .withFailedRecords(1);
+
+    checkpoint.addCommittedRecords(response);
+
+    assertThat(response.getTotalRecords(), is(7));
+    assertThat(response.getCreatedRecords(), is(3));
+    assertThat(response.getUpdatedRecords(), is(2));
+    assertThat(response.getUnchangedRecords(), is(1));
+    assertThat(response.getFailedRecords(), is(1));
+  }
+
+  @Test
+  public void disabledCheckpointKeepsAllUsers() {
+    List<User> users = List.of(user("1"));
+
+    assertThat(ImportCheckpoint.disabled().isEnabled(), is(false));
+    assertThat(ImportCheckpoint.disabled().withoutCommitted(users), sameInstance(users));
+  }
+
+  @Test
+  public void importIdDependsOnTheContent() {
+    String importId = ImportCheckpointService.getImportId(collection("1", "2"));
+
+    assertThat(ImportCheckpointService.getImportId(collection("1", "2")), is(importId));
+    assertThat(ImportCheckpointService.getImportId(collection("1", "3")), not(importId));
+  }
+
+  private static PartitionCheckpoint partition(List<String> externalSystemIds, int created, int updated,
+      int unchanged) {
+
+    PartitionCheckpoint partition = new PartitionCheckpoint();
+    partition.setExternalSystemIds(externalSystemIds);
+    partition.setCreatedRecords(created);
+    partition.setUpdatedRecords(updated);
+    partition.setUnchangedRecords(unchanged);
+    return partition;
+  }
+
+  private static UserdataimportCollection collection(String... externalSystemIds) {
+    List<User> users = new ArrayList<>();
+    for (String externalSystemId : externalSystemIds) {
+      users.add(user(externalSystemId));
+    }
+    return new UserdataimportCollection().withUsers(users).withTotalRecords(users.size());
+  }
+
+  private static User user(String externalSystemId) {
+    return new User().withExternalSystemId(externalSystemId).withUsername("user" + externalSystemId);
+  }
+}
@@ -0,0 +1,101 @@
+package org.folio.rest.impl;
+
+import static org.folio.PostgresTestUtils.TENANT;
+import static org.folio.PostgresTestUtils.onContext;
+import static org.folio.TestUtils.generateUser;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import org.folio.PostgresTestUtils;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.IncludedObjects;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.util.MockJson;
+import org.folio.util.OkapiHeaders;
+
+/**
+ * Imports through the partition queue with the workers of this instance.
+ */
+@RunWith(VertxUnitRunner.class)
+public class QueuedImportIT {
+
+  @ClassRule
+  public static final PostgreSQLContainer<?> postgres = PostgresTestUtils.createContainer();
+
+  private static final int MOCK_PORT = NetworkUtils.nextFreePort();
+  private static final List<String> SETTINGS = List.of("queue.enabled", "queue.partition-size",
+      "queue.poll-interval-ms", "queue.worker-concurrency");
+
+  private static Vertx vertx;
+
+  @BeforeClass
+  public static void setUpClass(TestContext context) {
+    PostgresTestUtils.configure(postgres);
+    System.setProperty("user-import.queue.enabled", "true");
+    System.setProperty("user-import.queue.partition-size", "1");
+    System.setProperty("user-import.queue.poll-interval-ms", "10");
+    System.setProperty("user-import.queue.worker-concurrency", "2");
+    vertx = Vertx.vertx();
+    MockJson mock = new MockJson("mock_standard.json");
+    mock.setMockJsonContent("mock_queued_import_with_new_department.json");
+    DeploymentOptions mockOptions = new DeploymentOptions()
+        .setConfig(new JsonObject().put("http.port", MOCK_PORT));
+    vertx.deployVerticle(mock, mockOptions)
+        .compose(id -> PostgresTestUtils.createTable(vertx, "import_partition"))
+        .compose(v -> {
+          Promise<Boolean> promise = Promise.promise();
+          new PartitionQueueInitAPI().init(vertx, vertx.getOrCreateContext(), promise);
+          return promise.future();
+        })
+        .onComplete(context.asyncAssertSuccess());
+  }
+
+  @AfterClass
+  public static void tearDownClass(TestContext context) {
+    SETTINGS.forEach(setting -> System.clearProperty("user-import." + setting));
+    PostgresClient.closeAllClients();
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void includedDepartmentIsCreatedOnce(TestContext context) {
+    // the mock creates the department once and rejects it afterwards like mod-users
+    User amy = generateUser("1234567", "Amy", "Cabble", null).withDepartments(Set.of("Financial"));
+    User bob = generateUser("7654321", "Bob", "Smith", null).withDepartments(Set.of("Financial"));
+    UserdataimportCollection userCollection = new UserdataimportCollection()
+        .withUsers(List.of(amy, bob))
+        .withTotalRecords(2)
+        .withIncluded(new IncludedObjects()
+            .withDepartments(Set.of(new Department().withName("Financial").withCode("FIN"))));
+    Map<String, String> okapiHeaders = OkapiHeaders.of(Map.of(
+        XOkapiHeaders.TENANT, TENANT,
+        XOkapiHeaders.TOKEN, "token",
+        XOkapiHeaders.URL, "http://localhost:" + MOCK_PORT));
+
+    onContext(vertx, () -> new UserImportAPI().runUserImport(userCollection, okapiHeaders, processedRecords -> { }))
+        .onComplete(context.asyncAssertSuccess(importResponse -> {
+          context.assertNull(importResponse.getError(), importResponse.getError());
+          context.assertEquals(2, importResponse.getCreatedRecords());
+          context.assertEquals(0, importResponse.getFailedRecords());
+        }));
+  }
+}
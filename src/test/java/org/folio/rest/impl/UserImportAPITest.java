@@ -3,6 +3,8 @@ package org.folio.rest.impl;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 
 import static org.folio.TestUtils.CREATED_RECORDS;
@@ -10,11 +12,13 @@ import static org.folio.TestUtils.ERROR;
 import static org.folio.TestUtils.EXTERNAL_SYSTEM_ID;
 import static org.folio.TestUtils.FAILED_RECORDS;
 import static org.folio.TestUtils.FAILED_USERS;
+import static org.folio.TestUtils.HTTP_CALLS;
 import static org.folio.TestUtils.JSON_CONTENT_TYPE_HEADER;
 import static org.folio.TestUtils.MESSAGE;
 import static org.folio.TestUtils.TENANT_HEADER;
 import static org.folio.TestUtils.TOKEN_HEADER;
 import static org.folio.TestUtils.TOTAL_RECORDS;
+import static org.folio.TestUtils.UNCHANGED_RECORDS;
 import static org.folio.TestUtils.UPDATED_RECORDS;
 import static org.folio.TestUtils.USERNAME;
 import static org.folio.TestUtils.USER_ERROR_MESSAGE;
@@ -28,6 +32,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 import io.restassured.RestAssured;
 import io.restassured.http.Header;
@@ -39,7 +44,9 @@ import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.folio.rest.tools.utils.NetworkUtils;
 import org.folio.util.MockJson;
 import org.junit.After;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -68,6 +75,17 @@ public class UserImportAPITest {
   private Vertx vertx;
   private MockJson mock = new MockJson("mock_standard.json");
 
+  @BeforeClass
+  public static void setUpClass() {
+    // the mocks page through existing users in pages of 10
+    System.setProperty("user-import.deactivation.page-size", "10");
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    System.clearProperty("user-import.deactivation.page-size");
+  }
+
   @Before
   public void setUp(TestContext context) {
     RestAssured.port = PORT;
@@ -205,9 +223,258 @@ public class UserImportAPITest {
       .body(UPDATED_RECORDS, equalTo(0))
       .body(FAILED_RECORDS, equalTo(0))
       .body(FAILED_USERS, hasSize(0))
+      .body(HTTP_CALLS, greaterThan(0))
+      .statusCode(200);
+  }
+
+  @Test
+  public void testRepeatedImportWithIdempotencyKey() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+    Header idempotencyKey = new Header("Idempotency-Key", UUID.randomUUID().toString());
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .header(idempotencyKey)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(CREATED_RECORDS, equalTo(1))
+      .statusCode(200);
+
+    // the repeated import is not run again, so the failing user search is not called
+    mock.setMockJsonContent("mock_user_search_error.json");
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .header(idempotencyKey)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+  }
+
+  @Test
+  public void testImportWithReusedIdempotencyKey() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+    Header idempotencyKey = new Header("Idempotency-Key", UUID.randomUUID().toString());
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .header(idempotencyKey)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(CREATED_RECORDS, equalTo(1))
+      .statusCode(200);
+
+    // the key of the first import must not return its response for a different import
+    collection.withDeactivateMissingUsers(true);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .header(idempotencyKey)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(containsString(UserImportAPIConstants.IDEMPOTENCY_KEY_REUSED + idempotencyKey.getValue()))
+      .statusCode(422);
+  }
+
+  @Test
+  public void testImportWithDuplicateExternalSystemIds() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(2);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+  }
+
+  @Test
+  public void testImportRejectingDuplicateExternalSystemIds() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(2)
+      .withDuplicatePolicy(UserdataimportCollection.DuplicatePolicy.REJECT);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(TOTAL_RECORDS, equalTo(2))
+      .body(CREATED_RECORDS, equalTo(0))
+      .body(FAILED_RECORDS, equalTo(2))
+      .body(FAILED_USERS + "." + USER_ERROR_MESSAGE,
+        hasItem(UserImportAPIConstants.DUPLICATE_EXTERNAL_SYSTEM_ID + "1234567"))
+      .statusCode(200);
+  }
+
+  @Test
+  public void testAsyncImportWithUserCreation() throws InterruptedException {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+
+    String jobId = given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT + "?async=true")
+      .then()
+      .statusCode(202)
+      .body(TOTAL_RECORDS, equalTo(1))
+      .extract().path("id");
+
+    String status = "IN_PROGRESS";
+    for (int i = 0; i < 50 && "IN_PROGRESS".equals(status); i++) {
+      Thread.sleep(100);
+      status = given()
+        .header(TENANT_HEADER)
+        .header(TOKEN_HEADER)
+        .get(USER_IMPORT + "/" + jobId)
+        .then()
+        .statusCode(200)
+        .extract().path("status");
+    }
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .get(USER_IMPORT + "/" + jobId)
+      .then()
+      .statusCode(200)
+      .body("status", equalTo("COMPLETED"))
+      .body("processedRecords", equalTo(1))
+      .body("importResponse." + MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body("importResponse." + CREATED_RECORDS, equalTo(1));
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .get(USER_IMPORT)
+      .then()
+      .statusCode(200)
+      .body("importJobs.id", hasItem(jobId));
+  }
+
+  @Test
+  public void testStreamImportWithUserCreation() {
+
+    mock.setMockJsonContent("mock_user_creation.json");
+
+    String body = "{}\n"
+      + JsonObject.mapFrom(generateUser("1234567", "Amy", "Cabble", null)).encode() + "\n"
+      + "{\"username\": \"nobody\"}\n";
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .contentType("application/x-ndjson")
+      .body(body)
+      .post(USER_IMPORT + "/stream")
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(2))
+      .body(CREATED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(1))
+      .body(FAILED_USERS + "[0]." + USERNAME, equalTo("nobody"))
       .statusCode(200);
   }
 
+  @Test
+  public void testStreamImportWithDeactivation() {
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .contentType("application/x-ndjson")
+      .body("{\"deactivateMissingUsers\": true}\n")
+      .post(USER_IMPORT + "/stream")
+      .then()
+      .body(containsString(UserImportAPIConstants.STREAM_DEACTIVATION_NOT_SUPPORTED))
+      .statusCode(400);
+  }
+
+  @Test
+  public void testGetUnknownImportJob() {
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .get(USER_IMPORT + "/" + UUID.randomUUID())
+      .then()
+      .statusCode(404);
+  }
+
   @Test
   public void testImportWithUserCreationWithoutPersonalData() throws IOException {
 
@@ -428,6 +695,37 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithUserSearchErrorInEveryPartition() {
+
+    mock.setMockJsonContent("mock_user_search_error.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("1234567", "Amy", "Cabble", null));
+    users.add(generateUser("2345678", "Bob", "Cabble", null));
+    users.add(generateUser("3456789", "Cid", "Cabble", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(3)
+      .withPartitionSize(1);
+
+    // every failed partition reports its own users only
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(TOTAL_RECORDS, equalTo(3))
+      .body(FAILED_RECORDS, equalTo(3))
+      .body(FAILED_USERS, hasSize(3))
+      .body(FAILED_USERS + "." + EXTERNAL_SYSTEM_ID, hasItem("2345678"))
+      .statusCode(200);
+  }
+
   @Test
   public void testImportWithUserCreationError()  {
 
@@ -534,6 +832,35 @@ public class UserImportAPITest {
       .statusCode(200);
   }
 
+  @Test
+  public void testImportWithUnchangedUser() {
+
+    mock.setMockJsonContent("mock_user_unchanged.json");
+
+    List<User> users = new ArrayList<>();
+    users.add(generateUser("89101113", "User", "Unchanged", null));
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(0))
+      .body(UPDATED_RECORDS, equalTo(0))
+      .body(UNCHANGED_RECORDS, equalTo(1))
+      .body(FAILED_RECORDS, equalTo(0))
+      .statusCode(200);
+  }
+
   @Test
   public void testImportWithUserUpdateAndWrongSchemaInUserSearchResult() throws IOException {
 
@@ -1522,6 +1849,94 @@ public class UserImportAPITest {
 
   }
 
+  @Test
+  public void testImportWithUserUpdateErrorAndExistingPreferenceUpdate() {
+    mock.setMockJsonContent("mock_user_update_error_with_preference_update.json");
+
+    List<User> users = new ArrayList<>();
+    User user = generateUser("89101112", "User", "Update", "58512926-9a29-483b-b801-d36aced855d3");
+    Address address = new Address()
+      .withAddressLine1("Test first line")
+      .withCity("Test city")
+      .withRegion("Test region")
+      .withPostalCode("12345")
+      .withAddressTypeId("Returns")
+      .withPrimaryAddress(Boolean.FALSE);
+    List<Address> addresses = new ArrayList<>();
+    addresses.add(address);
+    user.getPersonal().setAddresses(addresses);
+    user.setRequestPreference(
+      new RequestPreference()
+        .withHoldShelf(RequestPreference.HoldShelf.TRUE)
+        .withDelivery(true)
+        .withDefaultServicePointId("59646a99-4074-4ee5-bfd4-86f3fc7717da")
+        .withDefaultDeliveryAddressTypeId("Returns")
+        .withFulfillment(RequestPreference.Fulfillment.DELIVERY)
+    );
+    users.add(user);
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+
+    // the preference is written alongside the failing user update, the user is still reported as failed
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(MESSAGE, equalTo(UserImportAPIConstants.USERS_WERE_IMPORTED_SUCCESSFULLY))
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(CREATED_RECORDS, equalTo(0))
+      .body(UPDATED_RECORDS, equalTo(0))
+      .body(FAILED_RECORDS, equalTo(1))
+      .body(FAILED_USERS, hasSize(1))
+      .body(FAILED_USERS + "[0]." + EXTERNAL_SYSTEM_ID, equalTo(user.getExternalSystemId()))
+      .body(FAILED_USERS + "[0]." + USERNAME, equalTo(user.getUsername()))
+      .body(FAILED_USERS + "[0]." + USER_ERROR_MESSAGE,
+        containsString(UserImportAPIConstants.FAILED_TO_UPDATE_USER_WITH_EXTERNAL_SYSTEM_ID + user.getExternalSystemId()))
+      .statusCode(200);
+  }
+
+  @Test
+  public void testImportWithUserUpdateAndFailedPreferenceLookup() {
+    mock.setMockJsonContent("mock_user_update_with_failed_preference_lookup.json");
+
+    List<User> users = new ArrayList<>();
+    User user = generateUser("89101112", "User", "Update", "58512926-9a29-483b-b801-d36aced855d3");
+    user.setRequestPreference(
+      new RequestPreference()
+        .withHoldShelf(RequestPreference.HoldShelf.TRUE)
+        .withDelivery(false)
+        .withDefaultServicePointId("59646a99-4074-4ee5-bfd4-86f3fc7717da")
+    );
+    users.add(user);
+
+    UserdataimportCollection collection = new UserdataimportCollection()
+      .withUsers(users)
+      .withTotalRecords(1);
+
+    // the existing preference is unknown, the user must not get a second one
+    given()
+      .header(TENANT_HEADER)
+      .header(TOKEN_HEADER)
+      .header(new Header(XOkapiHeaders.URL, getOkapiUrl()))
+      .header(JSON_CONTENT_TYPE_HEADER)
+      .body(collection)
+      .post(USER_IMPORT)
+      .then()
+      .body(TOTAL_RECORDS, equalTo(1))
+      .body(UPDATED_RECORDS, equalTo(0))
+      .body(FAILED_RECORDS, equalTo(1))
+      .body(FAILED_USERS + "[0]." + EXTERNAL_SYSTEM_ID, equalTo(user.getExternalSystemId()))
+      .body(FAILED_USERS + "[0]." + USER_ERROR_MESSAGE,
+        containsString(UserImportAPIConstants.FAILED_TO_GET_USER_PREFERENCES))
+      .statusCode(200);
+  }
+
   @Test
   public void testImportUserWithNoPreferencesWithUpdateOnlyPresentFieldAndExistingPreferenceNotDelete() throws IOException {
     mock.setMockJsonContent("mock_user_update_with_preference_not_delete.json");
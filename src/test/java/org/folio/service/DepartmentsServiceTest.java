@@ -0,0 +1,70 @@
+package org.folio.service;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.folio.model.UserImportData;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.IncludedObjects;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.util.MockJson;
+import org.folio.util.OkapiHeaders;
+
+@RunWith(VertxUnitRunner.class)
+public class DepartmentsServiceTest {
+
+  private static final int MOCK_PORT = NetworkUtils.nextFreePort();
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp(TestContext context) {
+    vertx = Vertx.vertx();
+    DeploymentOptions mockOptions = new DeploymentOptions()
+        .setConfig(new JsonObject().put("http.port", MOCK_PORT));
+    vertx.deployVerticle(new MockJson("mock_department_rename.json"), mockOptions)
+        .onComplete(context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void renamedDepartmentFreesItsOldName(TestContext context) {
+    // Accounting is renamed by its code first, the department imported with the old name
+    // afterwards must be created instead of being matched with the renamed one
+    Map<String, String> okapiHeaders = OkapiHeaders.of(Map.of(
+        XOkapiHeaders.TENANT, "diku",
+        XOkapiHeaders.URL, "http://localhost:" + MOCK_PORT));
+    LinkedHashSet<Department> departments = new LinkedHashSet<>(List.of(
+        new Department().withName("Financial Accounting").withCode("ACC"),
+        new Department().withName("Accounting").withCode("OLD")));
+    UserImportData importData = new UserImportData(new UserdataimportCollection()
+        .withUsers(List.of())
+        .withIncluded(new IncludedObjects().withDepartments(departments)));
+
+    vertx.getOrCreateContext().runOnContext(v ->
+        new DepartmentsService().prepareDepartments(importData, okapiHeaders)
+            .onComplete(context.asyncAssertSuccess(systemDepartments -> {
+              Map<String, String> codesByName = systemDepartments.stream()
+                  .collect(Collectors.toMap(Department::getName, Department::getCode));
+              context.assertEquals(Map.of("Financial Accounting", "ACC", "Accounting", "OLD"), codesByName);
+            })));
+  }
+}
@@ -0,0 +1,66 @@
+package org.folio.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.util.MockJson;
+import org.folio.util.OkapiHeaders;
+
+@RunWith(VertxUnitRunner.class)
+public class ExistingUserReaderTest {
+
+  private static final int MOCK_PORT = NetworkUtils.nextFreePort();
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp(TestContext context) {
+    vertx = Vertx.vertx();
+    DeploymentOptions mockOptions = new DeploymentOptions()
+        .setConfig(new JsonObject().put("http.port", MOCK_PORT));
+    vertx.deployVerticle(new MockJson("mock_existing_user_pages.json"), mockOptions)
+        .onComplete(context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void pagesAreReadInTheOrderOfTheServer(TestContext context) {
+    // the mock only answers queries with sortBy, the last user of the first page is not
+    // the maximum in Java order, the cursor must follow the order of mod-users
+    Map<String, String> okapiHeaders = OkapiHeaders.of(Map.of(
+        XOkapiHeaders.TENANT, "diku",
+        XOkapiHeaders.URL, "http://localhost:" + MOCK_PORT));
+    List<Object> externalSystemIds = new ArrayList<>();
+    Async async = context.async();
+
+    vertx.getOrCreateContext().runOnContext(v ->
+        new ExistingUserReader(okapiHeaders, null, 2, 1)
+            .read(page -> {
+              page.forEach(user -> externalSystemIds.add(user.get("externalSystemId")));
+              return Future.succeededFuture();
+            })
+            .onComplete(context.asyncAssertSuccess(x -> {
+              context.assertEquals(List.of("b", "A", "c"), externalSystemIds);
+              async.complete();
+            })));
+  }
+}
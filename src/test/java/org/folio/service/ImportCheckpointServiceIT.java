@@ -0,0 +1,131 @@
+package org.folio.service;
+
+import static org.folio.PostgresTestUtils.TENANT;
+import static org.folio.PostgresTestUtils.onContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import org.folio.PostgresTestUtils;
+import org.folio.model.PartitionCheckpoint;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.util.OkapiHeaders;
+
+@RunWith(VertxUnitRunner.class)
+public class ImportCheckpointServiceIT {
+
+  @ClassRule
+  public static final PostgreSQLContainer<?> postgres = PostgresTestUtils.createContainer();
+
+  private static Vertx vertx;
+  private final ImportCheckpointService service = new ImportCheckpointService();
+  private final Map<String, String> okapiHeaders = OkapiHeaders.of(Map.of(XOkapiHeaders.TENANT, TENANT));
+
+  @BeforeClass
+  public static void setUpClass() {
+    PostgresTestUtils.configure(postgres);
+    vertx = Vertx.vertx();
+  }
+
+  @AfterClass
+  public static void tearDownClass(TestContext context) {
+    PostgresClient.closeAllClients();
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Before
+  public void setUp(TestContext context) {
+    System.setProperty("user-import.checkpoint.enabled", "true");
+    PostgresTestUtils.createTable(vertx, ImportCheckpointService.CHECKPOINT_TABLE)
+        .onComplete(context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("user-import.checkpoint.enabled");
+    System.clearProperty("user-import.checkpoint.ttl-hours");
+  }
+
+  @Test
+  public void savedPartitionsAreResumedUntilDeleted(TestContext context) {
+    ImportResponse response = new ImportResponse()
+        .withCreatedRecords(1)
+        .withUpdatedRecords(1)
+        .withUnchangedRecords(0);
+
+    onContext(vertx, () -> service.load(okapiHeaders, "import")
+        .compose(checkpoint -> service.save(okapiHeaders, checkpoint, List.of("1", "2"), response)
+            .compose(v -> service.save(okapiHeaders, checkpoint, List.of("3"), response))
+            .compose(v -> service.load(okapiHeaders, "other")))
+        .compose(other -> {
+          context.assertEquals(0, other.getCommittedRecords());
+          return service.load(okapiHeaders, "import");
+        })
+        .compose(checkpoint -> {
+          context.assertEquals(3, checkpoint.getCommittedRecords());
+          return service.delete(okapiHeaders, checkpoint);
+        })
+        .compose(v -> service.load(okapiHeaders, "import")))
+        .onComplete(context.asyncAssertSuccess(checkpoint -> context.assertEquals(0, checkpoint.getCommittedRecords())));
+  }
+
+  @Test
+  public void expiredCheckpointsAreIgnoredAndPurged(TestContext context) {
+    System.setProperty("user-import.checkpoint.ttl-hours", "1");
+    PartitionCheckpoint expired = partition("import", List.of("1", "2"),
+        System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+    PartitionCheckpoint current = partition("import", List.of("3"), System.currentTimeMillis());
+
+    onContext(vertx, () -> save(expired)
+        .compose(v -> save(current))
+        .compose(v -> service.load(okapiHeaders, "import")))
+        .compose(checkpoint -> {
+          context.assertEquals(1, checkpoint.getCommittedRecords());
+          return PostgresTestUtils.count(vertx, ImportCheckpointService.CHECKPOINT_TABLE);
+        })
+        .onComplete(context.asyncAssertSuccess(rows -> context.assertEquals(1, rows)));
+  }
+
+  @Test
+  public void disabledCheckpointsNeedNoDatabase(TestContext context) {
+    System.setProperty("user-import.checkpoint.enabled", "false");
+
+    onContext(vertx, () -> service.load(okapiHeaders, "import"))
+        .onComplete(context.asyncAssertSuccess(checkpoint -> context.assertFalse(checkpoint.isEnabled())));
+  }
+
+  private static PartitionCheckpoint partition(String importId, List<String> externalSystemIds, long createdDate) {
+    PartitionCheckpoint partition = new PartitionCheckpoint();
+    partition.setId(UUID.randomUUID().toString());
+    partition.setImportId(importId);
+    partition.setExternalSystemIds(externalSystemIds);
+    partition.setCreatedRecords(externalSystemIds.size());
+    partition.setCreatedDate(createdDate);
+    return partition;
+  }
+
+  private static Future<Void> save(PartitionCheckpoint partition) {
+    Promise<String> promise = Promise.promise();
+    PostgresClient.getInstance(vertx, TENANT)
+        .save(ImportCheckpointService.CHECKPOINT_TABLE, partition.getId(), partition, promise);
+    return promise.future().mapEmpty();
+  }
+}
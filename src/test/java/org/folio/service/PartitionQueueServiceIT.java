@@ -0,0 +1,273 @@
+package org.folio.service;
+
+import static org.folio.PostgresTestUtils.TENANT;
+import static org.folio.PostgresTestUtils.onContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import org.folio.PostgresTestUtils;
+import org.folio.model.QueuedPartition;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.ImportResponse;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.util.OkapiHeaders;
+
+@RunWith(VertxUnitRunner.class)
+public class PartitionQueueServiceIT {
+
+  @ClassRule
+  public static final PostgreSQLContainer<?> postgres = PostgresTestUtils.createContainer();
+
+  private static final String TOKEN = "secret-token";
+  private static final String TABLE = PostgresClient.convertToPsqlStandard(TENANT) + "."
+      + PartitionQueueService.PARTITION_TABLE;
+
+  private static Vertx vertx;
+  private final PartitionQueueService service = new PartitionQueueService();
+  private final Map<String, String> okapiHeaders = OkapiHeaders.of(Map.of(
+      XOkapiHeaders.TENANT, TENANT,
+      XOkapiHeaders.TOKEN, TOKEN,
+      XOkapiHeaders.URL, "http://localhost:9130"));
+  private final String importId = UUID.randomUUID().toString();
+
+  @BeforeClass
+  public static void setUpClass() {
+    PostgresTestUtils.configure(postgres);
+    vertx = Vertx.vertx();
+  }
+
+  @AfterClass
+  public static void tearDownClass(TestContext context) {
+    PostgresClient.closeAllClients();
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Before
+  public void setUp(TestContext context) {
+    System.setProperty("user-import.queue.partition-size", "1");
+    System.setProperty("user-import.queue.poll-interval-ms", "10");
+    PostgresTestUtils.createTable(vertx, PartitionQueueService.PARTITION_TABLE)
+        .onComplete(context.asyncAssertSuccess());
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("user-import.queue.partition-size");
+    System.clearProperty("user-import.queue.poll-interval-ms");
+    System.clearProperty("user-import.queue.max-attempts");
+    System.clearProperty("user-import.queue.retention-hours");
+  }
+
+  @Test
+  public void partitionsAreClaimedInOrderOnce(TestContext context) {
+    onContext(vertx, () -> enqueue(3)
+        .compose(v -> claim())
+        .compose(first -> {
+          context.assertEquals(0, first.getSequence());
+          context.assertEquals(QueuedPartition.State.CLAIMED, first.getState());
+          context.assertEquals(1, first.getAttempts());
+          return claim();
+        })
+        .compose(second -> {
+          context.assertEquals(1, second.getSequence());
+          return claim();
+        })
+        .compose(third -> {
+          context.assertEquals(2, third.getSequence());
+          return claim();
+        }))
+        .onComplete(context.asyncAssertSuccess(context::assertNull));
+  }
+
+  @Test
+  public void lockedPartitionIsSkipped(TestContext context) {
+    // while a transaction locks the first partition another claim must not wait for it
+    onContext(vertx, () -> enqueue(2)
+        .compose(v -> PostgresClient.getInstance(vertx, TENANT).withTrans(conn -> conn
+            .execute("SELECT id FROM " + TABLE + " WHERE jsonb->>'sequence' = '0' FOR UPDATE")
+            .compose(locked -> claim()))))
+        .onComplete(context.asyncAssertSuccess(claimed -> context.assertEquals(1, claimed.getSequence())));
+  }
+
+  @Test
+  public void concurrentClaimsGetDifferentPartitions(TestContext context) {
+    onContext(vertx, () -> enqueue(2)
+        .compose(v -> CompositeFuture.all(claim(), claim())))
+        .onComplete(context.asyncAssertSuccess(claims -> {
+          QueuedPartition first = claims.resultAt(0);
+          QueuedPartition second = claims.resultAt(1);
+          context.assertNotNull(first);
+          context.assertNotNull(second);
+          context.assertNotEquals(first.getId(), second.getId());
+        }));
+  }
+
+  @Test
+  public void expiredLeaseIsClaimedAgainUntilTheLastAttempt(TestContext context) {
+    System.setProperty("user-import.queue.max-attempts", "2");
+
+    onContext(vertx, () -> enqueue(1)
+        .compose(v -> claim())
+        .compose(first -> claim()
+            .compose(leased -> {
+              context.assertNull(leased);
+              return expireLeases();
+            })
+            .compose(v -> claim())
+            .compose(again -> {
+              context.assertEquals(first.getId(), again.getId());
+              context.assertEquals(2, again.getAttempts());
+              return expireLeases();
+            }))
+        .compose(v -> claim()))
+        .onComplete(context.asyncAssertSuccess(context::assertNull));
+  }
+
+  @Test
+  public void resentImportAdoptsQueuedPartitions(TestContext context) {
+    System.setProperty("user-import.queue.max-attempts", "1");
+
+    onContext(vertx, () -> enqueue(2)
+        .compose(queued -> {
+          context.assertTrue(queued);
+          return claim();
+        })
+        .compose(claimed -> expireLeases())
+        .compose(v -> enqueue(2))
+        .compose(queued -> {
+          context.assertFalse(queued);
+          return PostgresTestUtils.count(vertx, PartitionQueueService.PARTITION_TABLE);
+        })
+        .compose(count -> {
+          context.assertEquals(2, count);
+          // the abandoned partition was queued again
+          return claim();
+        }))
+        .onComplete(context.asyncAssertSuccess(claimed -> {
+          context.assertEquals(0, claimed.getSequence());
+          context.assertEquals(1, claimed.getAttempts());
+        }));
+  }
+
+  @Test
+  public void tokenIsNotStored(TestContext context) {
+    onContext(vertx, () -> enqueue(1)
+        .compose(v -> PostgresTestUtils.countWhere(vertx, PartitionQueueService.PARTITION_TABLE,
+            "jsonb::text LIKE '%" + TOKEN + "%'")))
+        .onComplete(context.asyncAssertSuccess(count -> context.assertEquals(0, count)));
+  }
+
+  @Test
+  public void completedPartitionsAreAwaited(TestContext context) {
+    List<Integer> done = new ArrayList<>();
+
+    onContext(vertx, () -> enqueue(2)
+        .compose(v -> CompositeFuture.all(
+            service.await(TENANT, importId, done::add),
+            claim().compose(this::complete).compose(v -> claim()).compose(this::complete)))
+        .map(all -> all.<List<QueuedPartition>>resultAt(0)))
+        .onComplete(context.asyncAssertSuccess(partitions -> {
+          context.assertEquals(2, partitions.size());
+          context.assertEquals(List.of(1, 1), done);
+          for (QueuedPartition partition : partitions) {
+            context.assertEquals(QueuedPartition.State.DONE, partition.getState());
+            context.assertNull(partition.getUsers());
+            context.assertEquals(1, partition.getResponse().getCreatedRecords());
+          }
+        }));
+  }
+
+  @Test
+  public void partitionsAreKeptForTheOtherSubmission(TestContext context) {
+    // the import was sent twice, the first submission is done before the second one polls
+    onContext(vertx, () -> enqueue(2)
+        .compose(first -> enqueue(2))
+        .compose(second -> claim().compose(this::complete).compose(v -> claim()).compose(this::complete))
+        .compose(v -> service.await(TENANT, importId, records -> { }))
+        .compose(partitions -> service.delete(TENANT, importId))
+        .compose(v -> service.await(TENANT, importId, records -> { }))
+        .compose(partitions -> {
+          context.assertEquals(2, partitions.size());
+          context.assertEquals(QueuedPartition.State.DONE, partitions.get(1).getState());
+          return service.delete(TENANT, importId);
+        })
+        .compose(v -> PostgresTestUtils.count(vertx, PartitionQueueService.PARTITION_TABLE)))
+        .onComplete(context.asyncAssertSuccess(count -> context.assertEquals(0, count)));
+  }
+
+  @Test
+  public void partitionsSeenDoneAreReportedWhenAnotherInstanceDeletesThem(TestContext context) {
+    onContext(vertx, () -> enqueue(2)
+        .compose(v -> claim())
+        .compose(this::complete)
+        // the instance that queued the import deletes its partitions while this one waits
+        .compose(v -> service.await(TENANT, importId, records -> PostgresTestUtils.execute(vertx, "DELETE FROM " + TABLE))))
+        .onComplete(context.asyncAssertSuccess(partitions -> {
+          context.assertEquals(2, partitions.size());
+          context.assertEquals(QueuedPartition.State.DONE, partitions.get(0).getState());
+          context.assertEquals(1, partitions.get(0).getResponse().getCreatedRecords());
+          context.assertNull(partitions.get(1).getResponse());
+        }));
+  }
+
+  @Test
+  public void purgeKeepsPartitionsBeingImported(TestContext context) {
+    onContext(vertx, () -> enqueue(2)
+        .compose(v -> claim())
+        .compose(claimed -> {
+          System.setProperty("user-import.queue.retention-hours", "0");
+          return service.purge(TENANT);
+        })
+        .compose(purged -> {
+          context.assertEquals(1, purged);
+          return PostgresTestUtils.count(vertx, PartitionQueueService.PARTITION_TABLE);
+        }))
+        .onComplete(context.asyncAssertSuccess(count -> context.assertEquals(1, count)));
+  }
+
+  private Future<Boolean> enqueue(int users) {
+    List<User> userList = new ArrayList<>();
+    for (int i = 0; i < users; i++) {
+      userList.add(new User().withExternalSystemId(String.valueOf(i)));
+    }
+    UserdataimportCollection userCollection = new UserdataimportCollection()
+        .withUsers(userList)
+        .withTotalRecords(users);
+    return service.enqueue(okapiHeaders, TENANT, importId, PartitionQueueService.split(userCollection, TENANT));
+  }
+
+  private Future<QueuedPartition> claim() {
+    return service.claim(TENANT);
+  }
+
+  private Future<Void> complete(QueuedPartition partition) {
+    ImportResponse response = new ImportResponse()
+        .withTotalRecords(1)
+        .withCreatedRecords(1);
+    return service.complete(TENANT, partition, response);
+  }
+
+  private Future<Void> expireLeases() {
+    return PostgresTestUtils.execute(vertx, "UPDATE " + TABLE
+        + " SET jsonb = jsonb || jsonb_build_object('leaseExpires', 0)");
+  }
+}
@@ -0,0 +1,88 @@
+package org.folio.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.folio.model.QueuedPartition;
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.jaxrs.model.Department;
+import org.folio.rest.jaxrs.model.IncludedObjects;
+import org.folio.rest.jaxrs.model.User;
+import org.folio.rest.jaxrs.model.UserdataimportCollection;
+import org.folio.util.OkapiHeaders;
+
+public class PartitionQueueServiceTest {
+
+  @After
+  public void tearDown() {
+    System.clearProperty("user-import.queue.partition-size");
+  }
+
+  @Test
+  public void partitionsKeepTheImportOptions() {
+    System.setProperty("user-import.queue.partition-size", "2");
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      users.add(new User().withExternalSystemId(String.valueOf(i)));
+    }
+    UserdataimportCollection userCollection = new UserdataimportCollection()
+        .withUsers(users)
+        .withTotalRecords(users.size())
+        .withSourceType("test")
+        .withUpdateOnlyPresentFields(true)
+        .withRefreshReferenceData(true)
+        .withIncluded(new IncludedObjects().withDepartments(Set.of(new Department().withName("Financial"))));
+
+    List<UserdataimportCollection> partitions = PartitionQueueService.split(userCollection, "diku");
+
+    assertThat(partitions, hasSize(3));
+    assertThat(partitions.get(0).getUsers(), contains(users.get(0), users.get(1)));
+    assertThat(partitions.get(2).getUsers(), contains(users.get(4)));
+    assertThat(partitions.get(2).getTotalRecords(), is(1));
+    assertThat(partitions.get(2).getSourceType(), is("test"));
+    assertThat(partitions.get(2).getUpdateOnlyPresentFields(), is(true));
+    // applied once by the receiving instance
+    assertThat(partitions.get(2).getIncluded(), is(nullValue()));
+    assertThat(partitions.get(2).getRefreshReferenceData(), is(nullValue()));
+  }
+
+  @Test
+  public void partitionIsAbandonedAfterTheLastAttempt() {
+    QueuedPartition partition = new QueuedPartition();
+    partition.setState(QueuedPartition.State.CLAIMED);
+    partition.setLeaseExpires(1000);
+    partition.setAttempts(2);
+
+    assertThat(partition.isAbandoned(2000, 3), is(false));
+    partition.setAttempts(3);
+    assertThat(partition.isAbandoned(500, 3), is(false));
+    assertThat(partition.isAbandoned(2000, 3), is(true));
+  }
+
+  @Test
+  public void tokenIsNotStored() {
+    Map<String, String> storedHeaders = PartitionQueueService.getStoredHeaders(OkapiHeaders.of(Map.of(
+        "x-okapi-tenant", "diku",
+        "x-okapi-token", "secret",
+        "x-okapi-url", "http://okapi:9130",
+        "x-okapi-user-id", "d0c2d4a4-8b2d-4f0e-9b5e-2c1e2a9a0a1b")));
+
+    assertThat(storedHeaders, hasEntry("x-okapi-tenant", "diku"));
+    assertThat(storedHeaders, hasEntry(XOkapiHeaders.URL, "http://okapi:9130"));
+    assertThat(storedHeaders.values(), not(hasItem("secret")));
+  }
+}
@@ -0,0 +1,44 @@
+package org.folio.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class UserPreferenceServiceTest {
+
+  @Test
+  public void userIdsAreSplitByQueryLength() {
+    List<String> userIds = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      userIds.add(UUID.randomUUID().toString());
+    }
+
+    List<List<String>> chunks = UserPreferenceService.splitByQueryLength(userIds, 4000);
+
+    // 90 + 44 per id
+    assertThat(chunks.stream().map(List::size).collect(Collectors.toList()), everyItem(lessThanOrEqualTo(88)));
+    assertThat(chunks, hasSize(12));
+    assertThat(chunks.stream().flatMap(List::stream).collect(Collectors.toList()), contains(userIds.toArray()));
+  }
+
+  @Test
+  public void tooLongUserIdIsOwnChunk() {
+    List<List<String>> chunks = UserPreferenceService.splitByQueryLength(List.of("a", "b", "c"), 10);
+
+    assertThat(chunks, contains(List.of("a"), List.of("b"), List.of("c")));
+  }
+
+  @Test
+  public void noUserIdsNoChunks() {
+    assertThat(UserPreferenceService.splitByQueryLength(List.of(), 4000), hasSize(0));
+  }
+}
@@ -0,0 +1,100 @@
+package org.folio.util;
+
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.folio.model.exception.CircuitBreakerOpenException;
+import org.folio.model.exception.HttpStatusException;
+
+public class CircuitBreakerTest {
+
+  @Before
+  public void setUp() {
+    System.setProperty("user-import.circuit-breaker.failure-threshold", "2");
+    System.setProperty("user-import.circuit-breaker.reset-timeout-ms", "60000");
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty("user-import.circuit-breaker.failure-threshold");
+    System.clearProperty("user-import.circuit-breaker.reset-timeout-ms");
+  }
+
+  @Test
+  public void endpointIgnoresIdsAndQuery() {
+    Assert.assertEquals("/users", CircuitBreaker.getEndpoint("/users/58512926-9a29-483b-b801-d36aced855d3"));
+    Assert.assertEquals("/users", CircuitBreaker.getEndpoint("/users?query=externalSystemId%3D%3D%28a%29"));
+    Assert.assertEquals("/request-preference-storage/request-preference",
+        CircuitBreaker.getEndpoint("/request-preference-storage/request-preference/9c007bbd-8c4b-46eb-bd4a-a5b94892f84f"));
+  }
+
+  @Test
+  public void opensAfterTransientFailuresAndFailsFast() {
+    CircuitBreaker breaker = new CircuitBreaker("/users");
+    AtomicInteger requests = new AtomicInteger();
+
+    breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+    breaker.execute(() -> fail(requests, new HttpStatusException(503, "Response status code 503")));
+    Future<Object> rejected = breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    Assert.assertEquals(2, requests.get());
+    Assert.assertTrue(rejected.cause() instanceof CircuitBreakerOpenException);
+  }
+
+  @Test
+  public void ignoresNonTransientFailuresAndClosesAfterSuccess() {
+    System.setProperty("user-import.circuit-breaker.reset-timeout-ms", "0");
+    CircuitBreaker breaker = new CircuitBreaker("/users");
+    AtomicInteger requests = new AtomicInteger();
+
+    breaker.execute(() -> fail(requests, new HttpStatusException(500, "Response status code 500")));
+    breaker.execute(() -> fail(requests, new HttpStatusException(500, "Response status code 500")));
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+    breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    breaker.execute(() -> Future.succeededFuture());
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void letsOneRequestThroughWhenHalfOpen() {
+    System.setProperty("user-import.circuit-breaker.reset-timeout-ms", "0");
+    CircuitBreaker breaker = new CircuitBreaker("/users");
+    // the settings are read when the breaker is created
+    System.setProperty("user-import.circuit-breaker.failure-threshold", "100");
+    AtomicInteger requests = new AtomicInteger();
+
+    breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+    breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    Promise<Object> probe = Promise.promise();
+    breaker.execute(() -> {
+      requests.incrementAndGet();
+      return probe.future();
+    });
+    Future<Object> rejected = breaker.execute(() -> fail(requests, new ConnectException("Connection refused")));
+    Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    Assert.assertTrue(rejected.cause() instanceof CircuitBreakerOpenException);
+    Assert.assertEquals(3, requests.get());
+
+    probe.complete();
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  private Future<Object> fail(AtomicInteger requests, Throwable cause) {
+    requests.incrementAndGet();
+    return Future.failedFuture(cause);
+  }
+}
@@ -0,0 +1,51 @@
+package org.folio.util;
+
+import java.util.Set;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.folio.rest.jaxrs.model.CustomField;
+
+@RunWith(VertxUnitRunner.class)
+public class CustomFieldsCacheTest {
+
+  private static final String TENANT = "diku";
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void keepsDefinitionsUntilInvalidated(TestContext context) {
+    CustomFieldsCache cache = new CustomFieldsCache();
+    Async async = context.async();
+
+    vertx.runOnContext(v -> {
+      context.assertNull(cache.get(TENANT));
+
+      cache.put(TENANT, "mod-users-1.0.0", Set.of(new CustomField().withRefId("sierraCheckoutInformation")));
+      CustomFieldsCache.Entry entry = cache.get(TENANT);
+      context.assertEquals("mod-users-1.0.0", entry.getModuleId());
+      context.assertEquals(1, entry.getCustomFields().size());
+
+      cache.invalidate(TENANT);
+      context.assertNull(cache.get(TENANT));
+      async.complete();
+    });
+  }
+}
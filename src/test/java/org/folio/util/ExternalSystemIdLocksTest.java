@@ -0,0 +1,93 @@
+package org.folio.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class ExternalSystemIdLocksTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void contendingVerticlesRunOnTheirOwnContext(TestContext context) {
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    Async async = context.async(2);
+    // the first holds the locks for a while, the second waits for them on another event loop
+    vertx.deployVerticle(new LockingVerticle("first", 200, order, context, async), context.asyncAssertSuccess(
+        id -> vertx.deployVerticle(new LockingVerticle("second", 0, order, context, async),
+            context.asyncAssertSuccess())));
+    async.awaitSuccess(5000);
+
+    context.assertEquals(List.of("first", "second"), order);
+    context.assertEquals(0, ExternalSystemIdLocks.size());
+  }
+
+  @Test
+  public void failingWorkReleasesTheLock(TestContext context) {
+    vertx.getOrCreateContext().runOnContext(v ->
+        ExternalSystemIdLocks.<Void>withLocks(List.of("diku:a"), () -> {
+          throw new IllegalStateException("x");
+        })
+        .onComplete(context.asyncAssertFailure(e -> {
+          context.assertEquals("x", e.getMessage());
+          context.assertEquals(0, ExternalSystemIdLocks.size());
+        })));
+  }
+
+  private static class LockingVerticle extends AbstractVerticle {
+
+    private final String name;
+    private final long holdMillis;
+    private final List<String> order;
+    private final TestContext testContext;
+    private final Async async;
+
+    LockingVerticle(String name, long holdMillis, List<String> order, TestContext testContext, Async async) {
+      this.name = name;
+      this.holdMillis = holdMillis;
+      this.order = order;
+      this.testContext = testContext;
+      this.async = async;
+    }
+
+    @Override
+    public void start() {
+      ExternalSystemIdLocks.withLocks(List.of("diku:a", "diku:b"), () -> {
+        testContext.assertTrue(context == Vertx.currentContext(), name + " runs on its own context");
+        order.add(name);
+        Promise<Void> promise = Promise.promise();
+        if (holdMillis > 0) {
+          vertx.setTimer(holdMillis, id -> promise.complete());
+        } else {
+          promise.complete();
+        }
+        return promise.future();
+      }).onComplete(testContext.asyncAssertSuccess(v -> {
+        testContext.assertTrue(context == Vertx.currentContext(), name + " completes on its own context");
+        async.countDown();
+      }));
+    }
+  }
+}
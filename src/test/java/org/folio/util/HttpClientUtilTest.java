@@ -1,11 +1,26 @@
 package org.folio.util;
 
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Context;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import org.folio.okapi.common.XOkapiHeaders;
+import org.folio.rest.tools.utils.NetworkUtils;
+
 @RunWith(VertxUnitRunner.class)
 public class HttpClientUtilTest {
 
@@ -15,4 +30,68 @@ public class HttpClientUtilTest {
     Assert.assertTrue(f.failed());
     Assert.assertEquals("lead: x", f.cause().getMessage());
   }
+
+  @Test
+  public void webClientPerContext(TestContext context) {
+    Vertx vertx = Vertx.vertx();
+    Context first = vertx.getOrCreateContext();
+    Context second = vertx.getOrCreateContext();
+    Async async = context.async();
+    first.runOnContext(v -> {
+      WebClient webClient = HttpClientUtil.getWebClient();
+      context.assertTrue(webClient == HttpClientUtil.getWebClient());
+      second.runOnContext(w -> {
+        context.assertFalse(webClient == HttpClientUtil.getWebClient());
+        vertx.close(context.asyncAssertSuccess(x -> async.complete()));
+      });
+    });
+  }
+
+  @Test
+  public void webClientOptions() {
+    System.setProperty("user-import.http.max-pool-size", "42");
+    System.setProperty("user-import.http.http2", "true");
+    try {
+      WebClientOptions options = HttpClientUtil.createWebClientOptions();
+      Assert.assertEquals(42, options.getMaxPoolSize());
+      Assert.assertEquals(HttpVersion.HTTP_2, options.getProtocolVersion());
+      Assert.assertTrue(options.isKeepAlive());
+    } finally {
+      System.clearProperty("user-import.http.max-pool-size");
+      System.clearProperty("user-import.http.http2");
+    }
+  }
+
+  @Test
+  public void everyAttemptIsCounted(TestContext context) {
+    System.setProperty("user-import.http.retry.backoff-ms", "1");
+    Vertx vertx = Vertx.vertx();
+    int port = NetworkUtils.nextFreePort();
+    AtomicInteger received = new AtomicInteger();
+    OkapiHeaders okapiHeaders = OkapiHeaders.of(Map.of(
+        XOkapiHeaders.TENANT, "diku",
+        XOkapiHeaders.URL, "http://localhost:" + port));
+    // the derived headers count the requests of the import as well
+    OkapiHeaders moduleHeaders = okapiHeaders.with(XOkapiHeaders.MODULE_ID, "mod-users-1.0.0");
+
+    vertx.createHttpServer()
+        .requestHandler(request -> request.response()
+            .setStatusCode(received.incrementAndGet() < 3 ? 503 : 200)
+            .end())
+        .listen(port)
+        .compose(server -> {
+          Promise<Void> promise = Promise.promise();
+          vertx.runOnContext(v -> HttpClientUtil.getRequestOkapi(HttpMethod.GET, moduleHeaders, "/retried")
+              .send()
+              .<Void>mapEmpty()
+              .onComplete(promise));
+          return promise.future();
+        })
+        .onComplete(context.asyncAssertSuccess(v -> {
+          System.clearProperty("user-import.http.retry.backoff-ms");
+          context.assertEquals(3, received.get());
+          context.assertEquals(3, okapiHeaders.getRequestCount());
+          vertx.close(context.asyncAssertSuccess());
+        }));
+  }
 }
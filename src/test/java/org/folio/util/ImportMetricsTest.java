@@ -0,0 +1,52 @@
+package org.folio.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+import org.junit.Test;
+
+import org.folio.rest.jaxrs.model.ImportResponse;
+
+public class ImportMetricsTest {
+
+  @Test
+  public void usersAreCountedPerTenant() {
+    ImportMetrics.recordUsers("metrics_tenant", new ImportResponse()
+        .withCreatedRecords(2)
+        .withUpdatedRecords(1)
+        .withUnchangedRecords(0)
+        .withFailedRecords(1));
+
+    String scrape = ImportMetrics.scrape();
+    assertThat(scrape, containsString("user_import_users_total{status=\"created\",tenant=\"metrics_tenant\",} 2.0"));
+    assertThat(scrape, containsString("user_import_users_total{status=\"failed\",tenant=\"metrics_tenant\",} 1.0"));
+  }
+
+  @Test
+  public void inFlightPartitions() {
+    ImportMetrics.partitionStarted("partitions_tenant");
+    ImportMetrics.partitionStarted("partitions_tenant");
+    ImportMetrics.partitionCompleted("partitions_tenant");
+
+    assertThat(ImportMetrics.scrape(),
+        containsString("user_import_partitions_in_flight{tenant=\"partitions_tenant\",} 1.0"));
+  }
+
+  @Test
+  public void queuedPartitions() {
+    ImportMetrics.partitionsQueued("queue_tenant", 5);
+    ImportMetrics.partitionsQueued("queue_tenant", -2);
+
+    assertThat(ImportMetrics.scrape(),
+        containsString("user_import_partitions_queued{tenant=\"queue_tenant\",} 3.0"));
+  }
+
+  @Test
+  public void requestLatencyIsRecordedPerEndpoint() {
+    ImportMetrics.recordRequest("requests_tenant", "/users", "GET", "200", 1_000_000);
+
+    assertThat(ImportMetrics.scrape(), containsString(
+        "user_import_http_requests_seconds_count{endpoint=\"/users\",method=\"GET\",outcome=\"200\","
+            + "tenant=\"requests_tenant\",} 1.0"));
+  }
+}
@@ -72,6 +72,14 @@ public class MockJson extends AbstractVerticle {
         || !uri.equals(entry.getString("url"))) {
         continue;
       }
+      // an entry with "times" answers that many requests, later ones go to the next entry
+      if (entry.containsKey("times")) {
+        int matched = entry.getInteger("matched", 0);
+        if (matched >= entry.getInteger("times")) {
+          continue;
+        }
+        entry.put("matched", matched + 1);
+      }
       response.setStatusCode(entry.getInteger("status", 200));
       JsonArray headers = entry.getJsonArray("headers");
       if (headers != null) {
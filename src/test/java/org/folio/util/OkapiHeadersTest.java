@@ -0,0 +1,53 @@
+package org.folio.util;
+
+import java.util.Map;
+
+import io.vertx.core.MultiMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OkapiHeadersTest {
+
+  @Test
+  public void forwardsOnlyOkapiHeadersUsedDownstream() {
+    OkapiHeaders headers = OkapiHeaders.of(Map.of(
+        "x-okapi-tenant", "diku",
+        "x-okapi-token", "token",
+        "x-okapi-url", "http://localhost:9130",
+        "content-length", "42"));
+
+    MultiMap forwarded = headers.getForwardedHeaders();
+    Assert.assertEquals("diku", forwarded.get("X-Okapi-Tenant"));
+    Assert.assertEquals("token", forwarded.get("x-okapi-token"));
+    Assert.assertNull(forwarded.get("x-okapi-url"));
+    Assert.assertNull(forwarded.get("content-length"));
+    Assert.assertEquals("http://localhost:9130", headers.get("X-Okapi-Url"));
+    Assert.assertSame(headers, OkapiHeaders.of(headers));
+  }
+
+  @Test
+  public void forwardedHeadersCantBeChanged() {
+    MultiMap forwarded = OkapiHeaders.of(Map.of("x-okapi-tenant", "diku")).getForwardedHeaders();
+
+    Assert.assertThrows(UnsupportedOperationException.class, () -> forwarded.set("x-okapi-tenant", "other"));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> forwarded.add("x-okapi-token", "token"));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> forwarded.remove("x-okapi-tenant"));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> forwarded.entries().get(0).setValue("other"));
+    Assert.assertEquals("diku", forwarded.get("x-okapi-tenant"));
+  }
+
+  @Test
+  public void derivedHeadersShareTheRequestCount() {
+    OkapiHeaders headers = OkapiHeaders.of(Map.of("x-okapi-tenant", "diku"));
+    OkapiHeaders derived = headers.with("X-Okapi-Module-Id", "mod-users-1.0.0");
+
+    derived.requestSent();
+    headers.requestSent();
+
+    Assert.assertEquals("mod-users-1.0.0", derived.getForwardedHeaders().get("x-okapi-module-id"));
+    Assert.assertNull(headers.get("x-okapi-module-id"));
+    Assert.assertEquals("diku", derived.get("x-okapi-tenant"));
+    Assert.assertEquals(2, headers.getRequestCount());
+    Assert.assertEquals(2, derived.getRequestCount());
+  }
+}
@@ -0,0 +1,134 @@
+package org.folio.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PartitionSchedulerTest {
+
+  @Test
+  public void limitsPartitionsInFlight() {
+    List<Promise<Integer>> started = new ArrayList<>();
+    PartitionScheduler<Integer, Integer> scheduler = new PartitionScheduler<>(2, partition -> {
+      Promise<Integer> promise = Promise.promise();
+      started.add(promise);
+      return promise.future().map(partition);
+    });
+
+    List<Future<Integer>> futures = scheduler.submitAll(List.of(1, 2, 3, 4, 5));
+
+    Assert.assertEquals(2, started.size());
+    Assert.assertEquals(2, scheduler.getInFlight());
+    Assert.assertEquals(3, scheduler.getQueueDepth());
+
+    started.get(0).complete();
+    Assert.assertEquals(3, started.size());
+    Assert.assertEquals(2, scheduler.getInFlight());
+    Assert.assertEquals(2, scheduler.getQueueDepth());
+
+    for (int i = 1; i < 5; i++) {
+      started.get(i).complete();
+    }
+    Assert.assertEquals(5, started.size());
+    Assert.assertEquals(0, scheduler.getInFlight());
+    Assert.assertEquals(0, scheduler.getQueueDepth());
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(Integer.valueOf(i + 1), futures.get(i).result());
+    }
+  }
+
+  @Test
+  public void processesSynchronouslyCompletedPartitions() {
+    List<Integer> partitions = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      partitions.add(i);
+    }
+    PartitionScheduler<Integer, Integer> scheduler = new PartitionScheduler<>(1, Future::succeededFuture);
+
+    List<Future<Integer>> futures = scheduler.submitAll(partitions);
+
+    Assert.assertTrue(futures.stream().allMatch(Future::succeeded));
+    Assert.assertEquals(0, scheduler.getInFlight());
+  }
+
+  @Test
+  public void continuesAfterFailedPartition() {
+    PartitionScheduler<Integer, Integer> scheduler = new PartitionScheduler<>(1, partition -> {
+      if (partition == 1) {
+        throw new IllegalStateException("failed");
+      }
+      return Future.succeededFuture(partition);
+    });
+
+    List<Future<Integer>> futures = scheduler.submitAll(List.of(1, 2));
+
+    Assert.assertTrue(futures.get(0).failed());
+    Assert.assertEquals("failed", futures.get(0).cause().getMessage());
+    Assert.assertEquals(Integer.valueOf(2), futures.get(1).result());
+  }
+
+  @Test
+  public void processesPartitionsFromSource() {
+    List<Promise<Integer>> started = new ArrayList<>();
+    PartitionScheduler<Integer, Integer> scheduler = new PartitionScheduler<>(2, partition -> {
+      Promise<Integer> promise = Promise.promise();
+      started.add(promise);
+      return promise.future().map(partition);
+    });
+
+    Future<List<Integer>> result = scheduler.process(List.of(1, 2, 3).iterator());
+
+    Assert.assertEquals(2, started.size());
+    started.get(1).complete();
+    Assert.assertEquals(3, started.size());
+    started.get(0).complete();
+    started.get(2).complete();
+    Assert.assertEquals(List.of(1, 2, 3), result.result());
+  }
+
+  @Test
+  public void countsPartitionsNotTakenFromSource() {
+    List<Promise<Integer>> started = new ArrayList<>();
+    int[] reportedQueueDepth = new int[1];
+    PartitionScheduler<Integer, Integer> scheduler = new PartitionScheduler<>(2, partition -> {
+      Promise<Integer> promise = Promise.promise();
+      started.add(promise);
+      return promise.future().map(partition);
+    }, delta -> reportedQueueDepth[0] += delta);
+    List<Integer> partitions = List.of(1, 2, 3, 4, 5);
+    Iterator<Integer> source = partitions.iterator();
+
+    Future<List<Integer>> result = scheduler.process(source, () -> partitions.size() - started.size());
+
+    Assert.assertEquals(3, scheduler.getQueueDepth());
+    Assert.assertEquals(3, reportedQueueDepth[0]);
+    started.get(0).complete();
+    Assert.assertEquals(2, scheduler.getQueueDepth());
+    Assert.assertEquals(2, reportedQueueDepth[0]);
+    for (int i = 1; i < 5; i++) {
+      started.get(i).complete();
+    }
+    Assert.assertTrue(result.succeeded());
+    Assert.assertEquals(0, scheduler.getQueueDepth());
+    Assert.assertEquals(0, reportedQueueDepth[0]);
+  }
+
+  @Test
+  public void stopsTakingPartitionsFromSourceAfterFailure() {
+    List<Integer> processed = new ArrayList<>();
+    PartitionScheduler<Integer, Integer> scheduler = new PartitionScheduler<>(1, partition -> {
+      processed.add(partition);
+      return partition == 2 ? Future.failedFuture("failed") : Future.succeededFuture(partition);
+    });
+
+    Future<List<Integer>> result = scheduler.process(List.of(1, 2, 3).iterator());
+
+    Assert.assertTrue(result.failed());
+    Assert.assertEquals(List.of(1, 2), processed);
+  }
+}
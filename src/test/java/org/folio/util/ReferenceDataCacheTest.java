@@ -0,0 +1,66 @@
+package org.folio.util;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(VertxUnitRunner.class)
+public class ReferenceDataCacheTest {
+
+  private static final Map<String, String> OKAPI_HEADERS = Map.of("x-okapi-tenant", "diku");
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void loadsOnceUntilRefreshed(TestContext context) {
+    AtomicInteger loads = new AtomicInteger();
+    ReferenceDataCache cache = new ReferenceDataCache("patronGroups");
+    Async async = context.async();
+
+    vertx.runOnContext(v -> cache.get(OKAPI_HEADERS, headers -> load(loads))
+        .compose(groups -> cache.get(OKAPI_HEADERS, headers -> load(loads)))
+        .onComplete(context.asyncAssertSuccess(groups -> {
+          context.assertEquals(1, loads.get());
+          context.assertEquals("1", groups.get("staff"));
+        }))
+        .compose(groups -> cache.refresh(OKAPI_HEADERS, headers -> load(loads)))
+        .onComplete(context.asyncAssertSuccess(groups -> {
+          context.assertEquals(2, loads.get());
+          async.complete();
+        })));
+  }
+
+  @Test
+  public void doesNotCacheFailures(TestContext context) {
+    AtomicInteger loads = new AtomicInteger();
+    ReferenceDataCache cache = new ReferenceDataCache("addressTypes");
+
+    vertx.runOnContext(v -> cache.get(OKAPI_HEADERS, headers -> Future.failedFuture("failed"))
+        .recover(e -> cache.get(OKAPI_HEADERS, headers -> load(loads)))
+        .onComplete(context.asyncAssertSuccess(types -> context.assertEquals(1, loads.get()))));
+  }
+
+  private Future<Map<String, String>> load(AtomicInteger loads) {
+    loads.incrementAndGet();
+    return Future.succeededFuture(Map.of("staff", String.valueOf(loads.get())));
+  }
+}
@@ -0,0 +1,67 @@
+package org.folio.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.folio.model.exception.HttpStatusException;
+
+@RunWith(VertxUnitRunner.class)
+public class RetryPolicyTest {
+
+  private Vertx vertx;
+
+  @Before
+  public void setUp() {
+    System.setProperty("user-import.http.retry.backoff-ms", "1");
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void tearDown(TestContext context) {
+    System.clearProperty("user-import.http.retry.backoff-ms");
+    vertx.close(context.asyncAssertSuccess());
+  }
+
+  @Test
+  public void retriesTransientFailures(TestContext context) {
+    AtomicInteger attempts = new AtomicInteger();
+
+    vertx.runOnContext(v -> RetryPolicy.execute(() -> attempts.incrementAndGet() < 3
+            ? Future.failedFuture(new HttpStatusException(503, "Response status code 503"))
+            : Future.succeededFuture("done"))
+        .onComplete(context.asyncAssertSuccess(result -> {
+          context.assertEquals("done", result);
+          context.assertEquals(3, attempts.get());
+        })));
+  }
+
+  @Test
+  public void doesNotRetryOtherFailures(TestContext context) {
+    AtomicInteger attempts = new AtomicInteger();
+
+    vertx.runOnContext(v -> RetryPolicy.execute(() -> {
+          attempts.incrementAndGet();
+          return Future.failedFuture(new HttpStatusException(500, "Response status code 500"));
+        })
+        .onComplete(context.asyncAssertFailure(e -> context.assertEquals(1, attempts.get()))));
+  }
+
+  @Test
+  public void stopsAfterMaxAttempts(TestContext context) {
+    AtomicInteger attempts = new AtomicInteger();
+
+    vertx.runOnContext(v -> RetryPolicy.execute(() -> {
+          attempts.incrementAndGet();
+          return Future.failedFuture(new HttpStatusException(502, "Response status code 502"));
+        })
+        .onComplete(context.asyncAssertFailure(e -> context.assertEquals(3, attempts.get()))));
+  }
+}
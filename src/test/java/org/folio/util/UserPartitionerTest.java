@@ -0,0 +1,69 @@
+package org.folio.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.folio.rest.jaxrs.model.User;
+
+public class UserPartitionerTest {
+
+  @Test
+  public void splitsUsersIntoFixedPartitions() {
+    UserPartitioner partitioner = new UserPartitioner(generateUsers(25, "user"), null, 10);
+
+    Assert.assertEquals(10, partitioner.next().size());
+    partitioner.recordLookup(10, 1);
+    Assert.assertEquals(10, partitioner.next().size());
+    Assert.assertEquals(5, partitioner.next().size());
+    Assert.assertFalse(partitioner.hasNext());
+  }
+
+  @Test
+  public void countsRemainingPartitions() {
+    UserPartitioner partitioner = new UserPartitioner(generateUsers(25, "user"), null, 10);
+
+    Assert.assertEquals(3, partitioner.getRemainingPartitions());
+    partitioner.next();
+    Assert.assertEquals(2, partitioner.getRemainingPartitions());
+    partitioner.next();
+    partitioner.next();
+    Assert.assertEquals(0, partitioner.getRemainingPartitions());
+  }
+
+  @Test
+  public void growsPartitionsWhileLatencyImproves() {
+    UserPartitioner partitioner = new UserPartitioner(generateUsers(1000, "user"), null, 10, true, 40, 4000);
+
+    Assert.assertEquals(10, partitioner.next().size());
+    partitioner.recordLookup(10, 100);
+    Assert.assertEquals(20, partitioner.next().size());
+    partitioner.recordLookup(20, 120);
+    Assert.assertEquals(40, partitioner.next().size());
+    partitioner.recordLookup(40, 400);
+    Assert.assertEquals(20, partitioner.next().size());
+    partitioner.recordLookup(20, 10);
+    Assert.assertEquals(20, partitioner.getCurrentSize());
+  }
+
+  @Test
+  public void limitsPartitionsByQueryLength() {
+    UserPartitioner partitioner = new UserPartitioner(generateUsers(100, "a_rather_long_external_system_id"), "source",
+        100, true, 100, 500);
+
+    List<User> partition = partitioner.next();
+
+    Assert.assertTrue(partition.size() < 100);
+    Assert.assertFalse(partition.isEmpty());
+  }
+
+  private List<User> generateUsers(int count, String prefix) {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      users.add(new User().withExternalSystemId(prefix + i));
+    }
+    return users;
+  }
+}